@@ -0,0 +1,153 @@
+package rendimiento;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.Locale;
+
+import dominio.Estado;
+import dominio.Incidencias;
+import dominio.Listas;
+import persistencia.IncidenciasDAO;
+
+/**
+ * Pruebas de rendimiento de los caminos más usados del dominio y del DAO.
+ * <p>
+ * Cada prueba se repite con 1.000, 10.000, 100.000 y 1.000.000 de incidencias (o los
+ * tamaños que se pasen como argumentos), primero unas rondas de calentamiento y después
+ * las rondas medidas. Para cada una se muestran las operaciones por segundo y los bytes
+ * reservados por operación. El DAO se mide sobre {@link BaseDatosMemoria}, así que los
+ * números recogen solo el coste en Java.
+ * <p>
+ * No es una batería JMH y no da números reproducibles entre versiones: todas las pruebas
+ * corren en la misma JVM, una detrás de otra (sin forks, así que el perfil del JIT de una
+ * afecta a las siguientes), el sumidero volatile no evita todas las optimizaciones que evita
+ * un Blackhole y no hay intervalos de error. Sirve para ver órdenes de magnitud y comparar a
+ * mano dos ejecuciones en la misma máquina. El proyecto no tiene Maven ni Gradle con los que
+ * traer JMH y su procesador de anotaciones; para tener esos números habría que añadir primero
+ * un build al proyecto y pasar estas pruebas a {@code @Benchmark}.
+ * <p>
+ * Uso: {@code java -cp bin:src/libs/* rendimiento.BancoPruebas [tamaño...]}
+ */
+public class BancoPruebas {
+	private static final int[] TAMANOS = { 1_000, 10_000, 100_000, 1_000_000 };
+	private static final int RONDAS_CALENTAMIENTO = 3;
+	private static final int RONDAS_MEDIDAS = 5;
+
+	/**
+	 * Destino de los resultados para que el compilador no elimine el trabajo medido
+	 */
+	private static volatile Object sumidero;
+
+	/**
+	 * Trabajo medido: hace {@code n} operaciones
+	 */
+	@FunctionalInterface
+	private interface Prueba {
+		void ejecutar(int n) throws Exception;
+	}
+
+	/**
+	 * Método principal
+	 * @param args Tamaños a probar; si no se indican se usan los predeterminados
+	 * @throws Exception si falla alguna prueba
+	 */
+	public static void main(String[] args) throws Exception {
+		int[] tamanos = TAMANOS;
+		if (args.length > 0) {
+			tamanos = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				tamanos[i] = Integer.parseInt(args[i]);
+			}
+		}
+		System.out.println("Mediciones orientativas en una sola JVM, sin JMH: no sirven para comparar versiones");
+		System.out.printf("%-28s %10s %15s %12s%n", "Prueba", "Tamaño", "ops/s", "bytes/op");
+		for (int n : tamanos) {
+			Incidencias[] incidencias = generarIncidencias(n);
+
+			medir("Incidencias.<init>", n, tam -> {
+				for (int i = 0; i < tam; i++) {
+					sumidero = new Incidencias("18/10/2026-10:15-" + i, Estado.Pendiente, i % 200, "No arranca el equipo");
+				}
+			});
+
+			medir("Incidencias.toString", n, tam -> {
+				for (int i = 0; i < tam; i++) {
+					sumidero = incidencias[i].toString();
+				}
+			});
+
+			Listas listas = new Listas();
+			for (Incidencias incidencia : incidencias) {
+				listas.agregarIncidencia(incidencia);
+			}
+			medir("Listas.buscarIncidencia", n, tam -> {
+				for (int i = 0; i < tam; i++) {
+					sumidero = listas.buscarIncidencia(incidencias[(i * 31) % tam].getIdentificador());
+				}
+			});
+
+			BaseDatosMemoria bd = new BaseDatosMemoria();
+			Connection con = bd.conectar();
+			medir("DAO.registrarIncidencia", n, tam -> {
+				for (int i = 0; i < tam; i++) {
+					sumidero = IncidenciasDAO.registrarIncidencia(con, Estado.Pendiente, i % 200, "No arranca el equipo");
+				}
+			});
+
+			bd.cargar("incidencias_pendientes", n);
+			medir("DAO.recorrerIncidencias", n, tam -> {
+				int[] puestos = new int[1];
+				int filas = IncidenciasDAO.recorrerIncidencias(con, Estado.Pendiente, i -> puestos[0] += i.getPuesto());
+				if (filas != tam) {
+					throw new IllegalStateException("Se esperaban " + tam + " filas y se han leído " + filas);
+				}
+				sumidero = puestos[0];
+			});
+		}
+	}
+
+	/**
+	 * Método que ejecuta una prueba y muestra su resultado
+	 * @param nombre	Nombre de la prueba
+	 * @param n			Número de operaciones por ronda
+	 * @param prueba	Trabajo a medir
+	 * @throws Exception si falla la prueba
+	 */
+	private static void medir(String nombre, int n, Prueba prueba) throws Exception {
+		for (int i = 0; i < RONDAS_CALENTAMIENTO; i++) {
+			prueba.ejecutar(n);
+		}
+		long bytesInicio = bytesReservados();
+		long inicio = System.nanoTime();
+		for (int i = 0; i < RONDAS_MEDIDAS; i++) {
+			prueba.ejecutar(n);
+		}
+		long nanos = System.nanoTime() - inicio;
+		long bytes = bytesReservados() - bytesInicio;
+		long operaciones = (long) n * RONDAS_MEDIDAS;
+		System.out.printf(Locale.ROOT, "%-28s %10d %15.0f %12.1f%n", nombre, n,
+				operaciones * 1e9 / nanos, bytesInicio < 0 ? Double.NaN : (double) bytes / operaciones);
+	}
+
+	/**
+	 * Método que obtiene los bytes reservados por el hilo actual, si la JVM lo permite
+	 * @return Bytes reservados, o -1 si no se pueden medir
+	 */
+	private static long bytesReservados() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean hilos) {
+			return hilos.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private static Incidencias[] generarIncidencias(int n) {
+		LocalDate hoy = LocalDate.now();
+		Incidencias[] incidencias = new Incidencias[n];
+		for (int i = 0; i < n; i++) {
+			incidencias[i] = new Incidencias("18/10/2026-10:15-" + (i + 1), Estado.Pendiente, i % 200,
+					"La impresora del puesto " + (i % 200) + " no imprime", hoy, null, null, null, null);
+		}
+		return incidencias;
+	}
+}
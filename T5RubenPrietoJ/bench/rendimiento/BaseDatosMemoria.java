@@ -0,0 +1,196 @@
+package rendimiento;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base de datos en memoria, dentro del propio proceso, para las pruebas de rendimiento.
+ * <p>
+ * Implementa con proxies lo justo de JDBC para las sentencias de IncidenciasDAO: las
+ * consultas sobre las tablas de incidencias devuelven las filas cargadas con
+ * {@link #cargar(String, int)} y la secuencia diaria de códigos se lleva en un contador.
+ * No interpreta SQL; sirve para medir el coste del DAO en Java (preparación, asignación
+ * de parámetros y mapeo de filas) sin que influya la red ni el servidor. Las migraciones
+ * se dan por aplicadas sin hacer nada, con el esquema de las tres tablas.
+ */
+public class BaseDatosMemoria {
+	private static final String[] COLUMNAS_PENDIENTES = { "identificador", "estado", "puesto", "descripcion", "fechaRegistro" };
+	private static final String[] COLUMNAS_RESUELTAS = { "identificador", "estado", "puesto", "descripcion", "fechaRegistro", "fechaResolucion", "resolucion" };
+	private static final String[] COLUMNAS_ELIMINADAS = { "identificador", "estado", "puesto", "descripcion", "fechaRegistro", "fechaEliminacion", "causaEliminacion" };
+
+	private final Map<String, Object[][]> tablas = new HashMap<>();
+	private final AtomicInteger secuencia = new AtomicInteger();
+
+	/**
+	 * Rellena una tabla de incidencias con filas generadas
+	 * @param tabla	Nombre de la tabla (incidencias_pendientes, incidencias_resueltas o incidencias_eliminadas)
+	 * @param filas	Número de filas
+	 */
+	public void cargar(String tabla, int filas) {
+		String[] columnas = columnas(tabla);
+		Date hoy = Date.valueOf(LocalDate.now());
+		Object[][] datos = new Object[filas][];
+		for (int i = 0; i < filas; i++) {
+			Object[] fila = new Object[columnas.length];
+			fila[0] = "18/10/2026-10:15-" + (i + 1);
+			fila[1] = tabla.endsWith("pendientes") ? "Pendiente" : tabla.endsWith("resueltas") ? "Resuelta" : "Eliminada";
+			fila[2] = i % 200;
+			fila[3] = "La impresora del puesto " + (i % 200) + " no imprime";
+			fila[4] = hoy;
+			if (columnas.length > 5) {
+				fila[5] = hoy;
+				fila[6] = "Se ha cambiado el tóner";
+			}
+			datos[i] = fila;
+		}
+		tablas.put(tabla, datos);
+	}
+
+	/**
+	 * Crea una conexión sobre los datos en memoria
+	 * @return La conexión
+	 */
+	public Connection conectar() {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+				(proxy, metodo, args) -> switch (metodo.getName()) {
+					case "prepareStatement" -> sentencia((String) args[0]);
+					case "createStatement" -> Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Statement.class },
+							(sentencia, metodoSentencia, argsSentencia) -> metodoSentencia.getName().equals("executeUpdate") ? 0 : null);
+					case "getMetaData" -> metadatos();
+					case "getAutoCommit", "isValid" -> true;
+					case "isClosed" -> false;
+					default -> null;
+				});
+	}
+
+	private PreparedStatement sentencia(String sql) {
+		Map<Integer, Object> parametros = new HashMap<>();
+		int[] clave = new int[1];
+		int[] lote = new int[1];
+		return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class },
+				(proxy, metodo, args) -> {
+					String nombre = metodo.getName();
+					if (nombre.startsWith("set") && args.length == 2 && args[0] instanceof Integer posicion) {
+						parametros.put(posicion, args[1]);
+						return null;
+					}
+					switch (nombre) {
+						case "executeQuery" -> {
+							// Los procedimientos de las transiciones devuelven 1 si han movido la incidencia
+							if (sql.startsWith("CALL ")) {
+								return resultado(new String[] { "movida" }, new Object[][] { { 1 } });
+							}
+							// Sin version_esquema: el esquema es el de las tres tablas
+							if (sql.contains("information_schema")) {
+								return resultado(new String[] { "TABLE_TYPE" }, new Object[0][]);
+							}
+							// Bloqueo de las migraciones, que nunca está ocupado
+							if (sql.contains("_LOCK(")) {
+								return resultado(new String[] { "bloqueo" }, new Object[][] { { 1 } });
+							}
+							if (sql.contains("version_esquema")) {
+								return resultado(new String[] { "version" }, new Object[0][]);
+							}
+							String tabla = tablaDe(sql);
+							return resultado(columnas(tabla), tablas.getOrDefault(tabla, new Object[0][]));
+						}
+						case "executeUpdate" -> {
+							if (sql.contains("secuencia_incidencias")) {
+								clave[0] = secuencia.addAndGet((Integer) parametros.get(3));
+							}
+							return 1;
+						}
+						case "getGeneratedKeys" -> {
+							return resultado(new String[] { "GENERATED_KEY" }, new Object[][] { { clave[0] } });
+						}
+						case "addBatch" -> {
+							lote[0]++;
+							return null;
+						}
+						case "executeBatch" -> {
+							int[] filas = new int[lote[0]];
+							Arrays.fill(filas, 1);
+							lote[0] = 0;
+							return filas;
+						}
+						case "isClosed" -> {
+							return false;
+						}
+						default -> {
+							return null;
+						}
+					}
+				});
+	}
+
+	private DatabaseMetaData metadatos() {
+		return (DatabaseMetaData) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { DatabaseMetaData.class },
+				(proxy, metodo, args) -> metodo.getName().equals("getTables")
+						? resultado(new String[] { "TABLE_NAME" }, new Object[][] { { "secuencia_incidencias" } })
+						: null);
+	}
+
+	private ResultSet resultado(String[] columnas, Object[][] filas) {
+		int[] actual = { -1 };
+		ResultSetMetaData metadatos = (ResultSetMetaData) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { ResultSetMetaData.class }, (proxy, metodo, args) -> switch (metodo.getName()) {
+					case "getColumnCount" -> columnas.length;
+					case "getColumnLabel", "getColumnName" -> columnas[(Integer) args[0] - 1];
+					default -> null;
+				});
+		return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+				(proxy, metodo, args) -> {
+					switch (metodo.getName()) {
+						case "next" -> {
+							return ++actual[0] < filas.length;
+						}
+						case "getMetaData" -> {
+							return metadatos;
+						}
+						case "getString", "getDate", "getObject" -> {
+							return filas[actual[0]][(Integer) args[0] - 1];
+						}
+						case "getInt" -> {
+							Object valor = filas[actual[0]][(Integer) args[0] - 1];
+							return valor == null ? 0 : ((Number) valor).intValue();
+						}
+						case "wasNull", "isClosed" -> {
+							return false;
+						}
+						default -> {
+							return null;
+						}
+					}
+				});
+	}
+
+	private static String tablaDe(String sql) {
+		for (String tabla : new String[] { "incidencias_pendientes", "incidencias_resueltas", "incidencias_eliminadas" }) {
+			if (sql.contains(tabla)) {
+				return tabla;
+			}
+		}
+		throw new IllegalArgumentException("Consulta no soportada: " + sql);
+	}
+
+	private static String[] columnas(String tabla) {
+		return switch (tabla) {
+			case "incidencias_pendientes" -> COLUMNAS_PENDIENTES;
+			case "incidencias_resueltas" -> COLUMNAS_RESUELTAS;
+			case "incidencias_eliminadas" -> COLUMNAS_ELIMINADAS;
+			default -> throw new IllegalArgumentException("Tabla desconocida: " + tabla);
+		};
+	}
+
+}
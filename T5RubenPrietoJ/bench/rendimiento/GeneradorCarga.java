@@ -0,0 +1,309 @@
+package rendimiento;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import dominio.Estado;
+import monitorizacion.HistogramaLatencias;
+import persistencia.ConexionBD;
+import persistencia.IncidenciasDAO;
+import persistencia.Migraciones;
+
+/**
+ * Generador de carga sin interfaz: varios operadores simulados ejecutan en paralelo las
+ * operaciones de IncidenciasDAO según una mezcla configurable, y al final (y cada cierto
+ * tiempo, para pruebas de larga duración) se muestran por operación el rendimiento, los
+ * percentiles 50, 99 y 99,9 de latencia y los errores. Se cuentan aparte los errores de la
+ * base de datos y las operaciones que no han encontrado la incidencia o no estaba en el
+ * estado esperado, que son normales cuando varios operadores trabajan a la vez.
+ * <p>
+ * Por defecto trabaja contra la base de datos de {@link ConexionBD}, que se puede apuntar a
+ * un servidor MySQL o MariaDB local con {@code -Dincidencias.bd.url=...}. Con
+ * {@code -Dincidencias.carga.memoria=true} usa {@link BaseDatosMemoria} para medir solo el
+ * coste en Java. Propiedades del sistema:
+ * <ul>
+ * <li>{@code incidencias.carga.operadores}: operadores simultáneos (8)</li>
+ * <li>{@code incidencias.carga.duracionS}: duración de la prueba en segundos (60)</li>
+ * <li>{@code incidencias.carga.informeS}: segundos entre informes parciales, 0 para ninguno (10)</li>
+ * <li>{@code incidencias.carga.pausaMs}: pausa de cada operador entre operaciones (0)</li>
+ * <li>{@code incidencias.carga.mezcla}: pesos de las operaciones, por ejemplo
+ * {@code registrar=30,buscar=30,modificar=10,resolver=10,eliminar=5,devolver=5,listar=10}</li>
+ * </ul>
+ */
+public class GeneradorCarga {
+	private static final String MEZCLA_PREDETERMINADA = "registrar=30,buscar=30,modificar=10,resolver=10,eliminar=5,devolver=5,listar=10";
+	private static final int TAMANO_PAGINA = 50;
+	private static final int RECIENTES = 4096;
+
+	/**
+	 * Operaciones que hace un operador
+	 */
+	enum Operacion {
+		REGISTRAR, BUSCAR, MODIFICAR, RESOLVER, ELIMINAR, DEVOLVER, LISTAR
+	}
+
+	/**
+	 * Proveedor de conexiones de los operadores
+	 */
+	@FunctionalInterface
+	interface Conexiones {
+		Connection obtener() throws SQLException;
+	}
+
+	private final Conexiones conexiones;
+	private final int[] pesos = new int[Operacion.values().length];
+	private final int pesoTotal;
+	private final Map<Operacion, HistogramaLatencias> latencias = new EnumMap<>(Operacion.class);
+	private final Map<Operacion, LongAdder> errores = new EnumMap<>(Operacion.class);
+	private final Map<Operacion, LongAdder> sinEfecto = new EnumMap<>(Operacion.class);
+	private final Map<Operacion, LongAdder> omitidas = new EnumMap<>(Operacion.class);
+	/**
+	 * Incidencias pendientes y resueltas conocidas, para resolverlas, eliminarlas o devolverlas
+	 */
+	private final ConcurrentLinkedQueue<String> pendientes = new ConcurrentLinkedQueue<>();
+	private final ConcurrentLinkedQueue<String> resueltas = new ConcurrentLinkedQueue<>();
+	/**
+	 * Últimos identificadores registrados, para búsquedas y modificaciones
+	 */
+	private final AtomicReferenceArray<String> recientes = new AtomicReferenceArray<>(RECIENTES);
+	private final AtomicLong siguienteReciente = new AtomicLong();
+	private volatile boolean parar;
+
+	/**
+	 * Constructor del generador de carga
+	 * @param conexiones	Proveedor de las conexiones de los operadores
+	 * @param mezcla		Pesos de las operaciones con el formato {@code operacion=peso,...}
+	 */
+	public GeneradorCarga(Conexiones conexiones, String mezcla) {
+		this.conexiones = conexiones;
+		for (String parte : mezcla.split(",")) {
+			String[] claveValor = parte.trim().split("=");
+			if (claveValor.length != 2) {
+				throw new IllegalArgumentException("Mezcla no válida: " + parte);
+			}
+			Operacion operacion = Operacion.valueOf(claveValor[0].trim().toUpperCase(Locale.ROOT));
+			pesos[operacion.ordinal()] = Integer.parseInt(claveValor[1].trim());
+		}
+		int total = 0;
+		for (int peso : pesos) {
+			total += peso;
+		}
+		if (total <= 0) {
+			throw new IllegalArgumentException("La mezcla no tiene ninguna operación: " + mezcla);
+		}
+		this.pesoTotal = total;
+		for (Operacion operacion : Operacion.values()) {
+			latencias.put(operacion, new HistogramaLatencias());
+			errores.put(operacion, new LongAdder());
+			sinEfecto.put(operacion, new LongAdder());
+			omitidas.put(operacion, new LongAdder());
+		}
+	}
+
+	/**
+	 * Método principal
+	 * @param args No se usan; la configuración se lee de las propiedades del sistema
+	 * @throws InterruptedException si se interrumpe la espera de los operadores
+	 * @throws SQLException si no se pueden aplicar las migraciones del esquema
+	 */
+	public static void main(String[] args) throws InterruptedException, SQLException {
+		int operadores = Integer.getInteger("incidencias.carga.operadores", 8);
+		int duracionS = Integer.getInteger("incidencias.carga.duracionS", 60);
+		int informeS = Integer.getInteger("incidencias.carga.informeS", 10);
+		long pausaMs = Long.getLong("incidencias.carga.pausaMs", 0L);
+		String mezcla = System.getProperty("incidencias.carga.mezcla", MEZCLA_PREDETERMINADA);
+
+		Conexiones conexiones;
+		if (Boolean.getBoolean("incidencias.carga.memoria")) {
+			BaseDatosMemoria bd = new BaseDatosMemoria();
+			bd.cargar("incidencias_pendientes", 1_000);
+			conexiones = bd::conectar;
+		} else {
+			// Las transiciones usan los procedimientos que crean las migraciones
+			try (Connection con = ConexionBD.obtenerConexion()) {
+				Migraciones.aplicar(con);
+			}
+			conexiones = ConexionBD::obtenerConexion;
+		}
+		GeneradorCarga generador = new GeneradorCarga(conexiones, mezcla);
+		try {
+			generador.ejecutar(operadores, duracionS * 1000L, informeS * 1000L, pausaMs);
+		} finally {
+			ConexionBD.cerrarPool();
+		}
+	}
+
+	/**
+	 * Método que lanza los operadores, espera a que termine la prueba y muestra el informe final
+	 * @param operadores	Número de operadores simultáneos
+	 * @param duracionMs	Duración de la prueba
+	 * @param informeMs		Milisegundos entre informes parciales, 0 para ninguno
+	 * @param pausaMs		Pausa de cada operador entre operaciones
+	 * @throws InterruptedException si se interrumpe la espera
+	 */
+	public void ejecutar(int operadores, long duracionMs, long informeMs, long pausaMs) throws InterruptedException {
+		CountDownLatch terminados = new CountDownLatch(operadores);
+		for (int i = 0; i < operadores; i++) {
+			Thread operador = new Thread(() -> {
+				try {
+					while (!parar) {
+						operar(elegir());
+						if (pausaMs > 0) {
+							Thread.sleep(pausaMs);
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					terminados.countDown();
+				}
+			}, "operador-" + (i + 1));
+			operador.setDaemon(true);
+			operador.start();
+		}
+
+		long inicio = System.nanoTime();
+		long fin = inicio + duracionMs * 1_000_000L;
+		long espera = informeMs > 0 ? informeMs : duracionMs;
+		while (System.nanoTime() < fin) {
+			Thread.sleep(Math.max(1, Math.min(espera, (fin - System.nanoTime()) / 1_000_000L)));
+			if (informeMs > 0 && System.nanoTime() < fin) {
+				informar(System.nanoTime() - inicio);
+			}
+		}
+		parar = true;
+		terminados.await();
+		System.out.println("Resultado final con " + operadores + " operadores:");
+		informar(System.nanoTime() - inicio);
+	}
+
+	private Operacion elegir() {
+		int valor = ThreadLocalRandom.current().nextInt(pesoTotal);
+		for (Operacion operacion : Operacion.values()) {
+			valor -= pesos[operacion.ordinal()];
+			if (valor < 0) {
+				return operacion;
+			}
+		}
+		return Operacion.REGISTRAR;
+	}
+
+	/**
+	 * Método que ejecuta una operación con su propia conexión y registra su latencia. Los
+	 * errores de la base de datos cuentan como errores y las operaciones que no encuentran la
+	 * incidencia en el estado esperado, como sin efecto.
+	 * @param operacion Operación a ejecutar
+	 */
+	private void operar(Operacion operacion) {
+		String identificador = switch (operacion) {
+			case BUSCAR, MODIFICAR -> reciente();
+			case RESOLVER, ELIMINAR -> pendientes.poll();
+			case DEVOLVER -> resueltas.poll();
+			default -> null;
+		};
+		if (identificador == null && operacion != Operacion.REGISTRAR && operacion != Operacion.LISTAR) {
+			omitidas.get(operacion).increment();
+			return;
+		}
+		long inicio = System.nanoTime();
+		boolean correcta;
+		boolean error = false;
+		try (Connection con = conexiones.obtener()) {
+			correcta = switch (operacion) {
+				case REGISTRAR -> registrar(con);
+				case BUSCAR -> IncidenciasDAO.buscar(con, identificador) != null;
+				case MODIFICAR -> IncidenciasDAO.modificar(con, identificador, "Descripción modificada por la prueba de carga");
+				case RESOLVER -> mover(IncidenciasDAO.resolver(con, identificador, LocalDate.now(), "Resuelta por la prueba de carga"),
+						identificador, resueltas);
+				case ELIMINAR -> mover(IncidenciasDAO.eliminar(con, identificador, LocalDate.now(), "Eliminada por la prueba de carga"),
+						identificador, null);
+				case DEVOLVER -> mover(IncidenciasDAO.devolver(con, identificador), identificador, pendientes);
+				case LISTAR -> {
+					IncidenciasDAO.pagina(con, Estado.Pendiente, null, TAMANO_PAGINA);
+					yield true;
+				}
+			};
+		} catch (SQLException | RuntimeException e) {
+			correcta = false;
+			error = true;
+		}
+		latencias.get(operacion).registrar(System.nanoTime() - inicio);
+		if (error) {
+			errores.get(operacion).increment();
+		} else if (!correcta) {
+			sinEfecto.get(operacion).increment();
+		}
+	}
+
+	/**
+	 * Método que registra una incidencia y la apunta como pendiente y reciente
+	 * @param con Conexión a la base de datos
+	 * @return true si se ha registrado, false si no se ha insertado
+	 * @throws SQLException si falla el acceso a la base de datos
+	 */
+	private boolean registrar(Connection con) throws SQLException {
+		int puesto = ThreadLocalRandom.current().nextInt(1, 201);
+		String codigo = IncidenciasDAO.registrar(con, Estado.Pendiente, puesto, "Incidencia generada por la prueba de carga");
+		if (codigo == null) {
+			return false;
+		}
+		pendientes.offer(codigo);
+		recientes.set((int) (siguienteReciente.getAndIncrement() % RECIENTES), codigo);
+		return true;
+	}
+
+	/**
+	 * Método que apunta el nuevo estado de una incidencia movida
+	 * @param correcta		Si el movimiento ha ido bien
+	 * @param identificador	Identificador de la incidencia
+	 * @param destino		Cola del nuevo estado, o null si ya no se va a usar
+	 * @return Si el movimiento ha ido bien
+	 */
+	private static boolean mover(boolean correcta, String identificador, ConcurrentLinkedQueue<String> destino) {
+		if (correcta && destino != null) {
+			destino.offer(identificador);
+		}
+		return correcta;
+	}
+
+	private String reciente() {
+		long total = siguienteReciente.get();
+		if (total == 0) {
+			return null;
+		}
+		return recientes.get(ThreadLocalRandom.current().nextInt((int) Math.min(total, RECIENTES)));
+	}
+
+	/**
+	 * Método que muestra el rendimiento, las latencias y los errores de cada operación
+	 * @param nanos Tiempo transcurrido desde el comienzo de la prueba
+	 */
+	private void informar(long nanos) {
+		double segundos = nanos / 1e9;
+		System.out.printf("%-10s %10s %10s %10s %10s %10s %8s %9s %8s%n",
+				"Operación", "total", "ops/s", "p50 ms", "p99 ms", "p99,9 ms", "errores", "sinEfecto", "omitidas");
+		for (Operacion operacion : Operacion.values()) {
+			HistogramaLatencias histograma = latencias.get(operacion);
+			System.out.printf(Locale.ROOT, "%-10s %10d %10.1f %10.3f %10.3f %10.3f %8d %9d %8d%n",
+					operacion.name().toLowerCase(Locale.ROOT), histograma.getCuenta(), histograma.getCuenta() / segundos,
+					histograma.percentil(50) / 1e6, histograma.percentil(99) / 1e6, histograma.percentil(99.9) / 1e6,
+					errores.get(operacion).sum(), sinEfecto.get(operacion).sum(), omitidas.get(operacion).sum());
+		}
+		if (!Boolean.getBoolean("incidencias.carga.memoria")) {
+			System.out.println(ConexionBD.getPool());
+		}
+		System.out.println("Caché de búsquedas: " + IncidenciasDAO.getCache());
+		System.out.println();
+	}
+
+}
@@ -0,0 +1,415 @@
+package aplicacion;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import dominio.DatosIncidencia;
+import persistencia.ConexionBD;
+import persistencia.IncidenciasDAO;
+
+/**
+ * Importación masiva de incidencias pendientes desde un fichero CSV.
+ * <p>
+ * El fichero tiene las columnas {@code puesto} y {@code descripcion} (con una cabecera
+ * opcional) y se lee registro a registro, así que la memoria usada no depende de su tamaño.
+ * Un hilo lee y valida los registros y los agrupa en lotes que deja en una cola acotada; otros
+ * hilos, cada uno con su conexión, los registran con
+ * {@link IncidenciasDAO#registrarIncidencias(Connection, java.util.Collection, int)}, que
+ * reserva los códigos del lote de una vez y lo inserta con un INSERT por lotes. Al terminar
+ * se devuelve un informe con las filas importadas y los errores de las rechazadas; si el
+ * fichero no se puede leer hasta el final, el informe indica en qué línea se interrumpió.
+ */
+public class ImportadorCSV {
+	/**
+	 * Número máximo de errores que se guardan con su mensaje en el informe
+	 */
+	private static final int MAXIMO_ERRORES = 100;
+	/**
+	 * Tamaño máximo en bytes de una columna TEXT
+	 */
+	private static final int MAXIMO_DESCRIPCION = 65_535;
+	private static final Lote FIN = new Lote(0);
+
+	private final char separador;
+	private final int tamanoLote;
+	private final int escritores;
+	private final LongAdder leidas = new LongAdder();
+	private final LongAdder importadas = new LongAdder();
+	private final LongAdder rechazadas = new LongAdder();
+	private final List<String> errores = Collections.synchronizedList(new ArrayList<>());
+
+	/**
+	 * Constructor del importador
+	 * @param separador		Separador de campos del CSV
+	 * @param tamanoLote	Número de incidencias por lote
+	 * @param escritores	Número de hilos que escriben en la base de datos
+	 */
+	public ImportadorCSV(char separador, int tamanoLote, int escritores) {
+		this.separador = separador;
+		this.tamanoLote = Math.max(1, tamanoLote);
+		this.escritores = Math.max(1, escritores);
+	}
+
+	/**
+	 * Importa un fichero CSV en UTF-8 indicado como argumento, mostrando el progreso cada
+	 * segundo. El separador, el tamaño de lote y los escritores se leen de las propiedades
+	 * {@code incidencias.csv.separador} (,), {@code incidencias.lote.tamano} (500) y
+	 * {@code incidencias.csv.escritores} (4).
+	 *
+	 * @param args Ruta del fichero CSV
+	 * @throws IOException si no se puede leer el fichero
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.out.println("Uso: ImportadorCSV <fichero.csv>");
+			return;
+		}
+		ImportadorCSV importador = new ImportadorCSV(System.getProperty("incidencias.csv.separador", ",").charAt(0),
+				Integer.getInteger("incidencias.lote.tamano", 500), Integer.getInteger("incidencias.csv.escritores", 4));
+		ScheduledExecutorService progreso = Executors.newSingleThreadScheduledExecutor(tarea -> {
+			Thread hilo = new Thread(tarea, "progreso-importacion");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+		progreso.scheduleAtFixedRate(() -> System.out.println(importador.progreso()), 1, 1, TimeUnit.SECONDS);
+		try (Reader entrada = new InputStreamReader(Files.newInputStream(Path.of(args[0])), StandardCharsets.UTF_8)) {
+			System.out.println(importador.importar(entrada));
+		} finally {
+			progreso.shutdownNow();
+			ConexionBD.cerrarPool();
+		}
+	}
+
+	/**
+	 * Importa las incidencias de un CSV
+	 * @param entrada Texto CSV
+	 * @return Informe de la importación, que indica la línea en la que se interrumpió si falla la
+	 * lectura o el CSV está mal formado
+	 */
+	public Informe importar(Reader entrada) {
+		long inicio = System.nanoTime();
+		BlockingQueue<Lote> lotes = new ArrayBlockingQueue<>(escritores * 2);
+		AtomicInteger vivos = new AtomicInteger(escritores);
+		List<Thread> hilos = new ArrayList<>();
+		for (int i = 0; i < escritores; i++) {
+			Thread hilo = new Thread(() -> escribir(lotes, vivos), "importacion-" + (i + 1));
+			hilo.start();
+			hilos.add(hilo);
+		}
+		String interrupcion;
+		try {
+			interrupcion = leer(new LectorCSV(entrada, separador), lotes);
+		} finally {
+			try {
+				for (int i = 0; i < escritores; i++) {
+					lotes.put(FIN);
+				}
+				for (Thread hilo : hilos) {
+					hilo.join();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				hilos.forEach(Thread::interrupt);
+			}
+		}
+		return new Informe(leidas.sum(), importadas.sum(), rechazadas.sum(), new ArrayList<>(errores),
+				interrupcion, System.nanoTime() - inicio);
+	}
+
+	/**
+	 * Método de la etapa de lectura: valida los registros y los deja en la cola por lotes.
+	 * Si la lectura falla o hay un registro mal formado, los lotes ya leídos se registran
+	 * igualmente y se deja de leer.
+	 * @param lector	Lector del CSV
+	 * @param lotes		Cola de lotes para los escritores
+	 * @return El motivo por el que se interrumpió la lectura, o null si se leyó todo el fichero
+	 */
+	private String leer(LectorCSV lector, BlockingQueue<Lote> lotes) {
+		Lote lote = new Lote(tamanoLote);
+		String interrupcion = null;
+		boolean primero = true;
+		try {
+			try {
+				List<String> campos;
+				while ((campos = lector.leer()) != null) {
+					if (campos.size() == 1 && campos.get(0).isBlank()) {
+						continue;
+					}
+					if (primero) {
+						primero = false;
+						if (campos.get(0).trim().equalsIgnoreCase("puesto")) {
+							continue;
+						}
+					}
+					leidas.increment();
+					DatosIncidencia datos = validar(campos, lector.getLineaRegistro());
+					if (datos == null) {
+						continue;
+					}
+					lote.anadir(datos, lector.getLineaRegistro());
+					if (lote.datos.size() == tamanoLote) {
+						lotes.put(lote);
+						lote = new Lote(tamanoLote);
+					}
+				}
+			} catch (IOException e) {
+				interrupcion = "Lectura interrumpida en la línea " + lector.getLineaRegistro() + ": " + e.getMessage();
+				errores.add(interrupcion);
+			}
+			if (!lote.datos.isEmpty()) {
+				lotes.put(lote);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return interrupcion;
+	}
+
+	/**
+	 * Método que comprueba un registro del CSV
+	 * @param campos	Campos del registro
+	 * @param linea		Línea del fichero en la que empieza
+	 * @return Los datos de la incidencia, o null si el registro no es válido
+	 */
+	private DatosIncidencia validar(List<String> campos, long linea) {
+		if (campos.size() != 2) {
+			return rechazar(linea, "se esperaban 2 campos y hay " + campos.size());
+		}
+		int puesto;
+		try {
+			puesto = Integer.parseInt(campos.get(0).trim());
+		} catch (NumberFormatException e) {
+			return rechazar(linea, "el puesto '" + campos.get(0) + "' no es un número");
+		}
+		if (puesto <= 0) {
+			return rechazar(linea, "el puesto debe ser mayor que 0");
+		}
+		String descripcion = campos.get(1).trim();
+		if (descripcion.isEmpty()) {
+			return rechazar(linea, "la descripción está vacía");
+		}
+		if (descripcion.length() > MAXIMO_DESCRIPCION / 4
+				&& descripcion.getBytes(StandardCharsets.UTF_8).length > MAXIMO_DESCRIPCION) {
+			return rechazar(linea, "la descripción supera los " + MAXIMO_DESCRIPCION + " bytes");
+		}
+		return new DatosIncidencia(puesto, descripcion);
+	}
+
+	private DatosIncidencia rechazar(long linea, String motivo) {
+		rechazadas.increment();
+		if (errores.size() < MAXIMO_ERRORES) {
+			errores.add("Línea " + linea + ": " + motivo);
+		}
+		return null;
+	}
+
+	/**
+	 * Método de la etapa de escritura: registra los lotes de la cola hasta recibir el final.
+	 * Si el escritor falla, rechaza su lote y termina; los demás siguen con la cola. Solo el
+	 * último escritor que queda sigue consumiendo los lotes como rechazados hasta el final,
+	 * para que la lectura no se quede bloqueada con la cola llena.
+	 * @param lotes	Cola de lotes
+	 * @param vivos	Escritores que siguen registrando lotes
+	 */
+	private void escribir(BlockingQueue<Lote> lotes, AtomicInteger vivos) {
+		Lote lote = null;
+		try (Connection con = ConexionBD.obtenerConexion()) {
+			while ((lote = lotes.take()) != FIN) {
+				String[] codigos = IncidenciasDAO.registrarIncidencias(con, lote.datos, tamanoLote);
+				int correctas = 0;
+				for (String codigo : codigos) {
+					if (codigo != null) {
+						correctas++;
+					}
+				}
+				importadas.add(correctas);
+				if (correctas < codigos.length) {
+					rechazadas.add(codigos.length - correctas);
+					if (errores.size() < MAXIMO_ERRORES) {
+						errores.add(lote.lineas() + ": " + (codigos.length - correctas)
+								+ " incidencias del lote no se han podido insertar");
+					}
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+			errores.add("No se ha podido obtener una conexión: " + e.getMessage());
+			abandonar(lotes, vivos, lote);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			if (lote != null && lote != FIN) {
+				rechazadas.add(lote.datos.size());
+				errores.add(lote.lineas() + ": error inesperado al registrar el lote: " + e);
+			} else {
+				errores.add("Error inesperado al registrar un lote: " + e);
+			}
+			abandonar(lotes, vivos, lote);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Método que retira un escritor que ha fallado. Si era el último y aún no ha llegado el
+	 * final, descarta los lotes que quedan y apunta qué líneas no se han importado.
+	 * @param lotes	Cola de lotes
+	 * @param vivos	Escritores que siguen registrando lotes
+	 * @param lote	Último lote que tomó el escritor, o null si no llegó a tomar ninguno
+	 */
+	private void abandonar(BlockingQueue<Lote> lotes, AtomicInteger vivos, Lote lote) {
+		if (vivos.decrementAndGet() > 0 || lote == FIN) {
+			return;
+		}
+		long descartadas = 0;
+		long primeraLinea = 0;
+		long ultimaLinea = 0;
+		try {
+			Lote descartado;
+			while ((descartado = lotes.take()) != FIN) {
+				descartadas += descartado.datos.size();
+				if (primeraLinea == 0) {
+					primeraLinea = descartado.primeraLinea;
+				}
+				ultimaLinea = descartado.ultimaLinea;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (descartadas > 0) {
+			rechazadas.add(descartadas);
+			errores.add("Líneas " + primeraLinea + "-" + ultimaLinea + ": " + descartadas
+					+ " incidencias descartadas por no quedar ningún escritor");
+		}
+	}
+
+	/**
+	 * Método que describe el progreso de la importación en curso
+	 * @return Filas leídas, importadas y rechazadas hasta ahora
+	 */
+	public String progreso() {
+		return "Leídas " + leidas.sum() + ", importadas " + importadas.sum() + ", rechazadas " + rechazadas.sum();
+	}
+
+	/**
+	 * Lote de incidencias con las líneas del CSV de las que salen
+	 */
+	private static final class Lote {
+		private final List<DatosIncidencia> datos;
+		private long primeraLinea;
+		private long ultimaLinea;
+
+		private Lote(int tamano) {
+			datos = new ArrayList<>(tamano);
+		}
+
+		private void anadir(DatosIncidencia incidencia, long linea) {
+			if (datos.isEmpty()) {
+				primeraLinea = linea;
+			}
+			datos.add(incidencia);
+			ultimaLinea = linea;
+		}
+
+		private String lineas() {
+			return "Líneas " + primeraLinea + "-" + ultimaLinea;
+		}
+	}
+
+	/**
+	 * Resultado de una importación
+	 */
+	public static final class Informe {
+		private final long leidas;
+		private final long importadas;
+		private final long rechazadas;
+		private final List<String> errores;
+		private final String interrupcion;
+		private final long nanos;
+
+		private Informe(long leidas, long importadas, long rechazadas, List<String> errores, String interrupcion,
+				long nanos) {
+			this.leidas = leidas;
+			this.importadas = importadas;
+			this.rechazadas = rechazadas;
+			this.errores = Collections.unmodifiableList(errores);
+			this.interrupcion = interrupcion;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * Getter del número de registros leídos del CSV, sin contar la cabecera
+		 * @return Registros leídos
+		 */
+		public long getLeidas() {
+			return leidas;
+		}
+
+		/**
+		 * Getter del número de incidencias registradas
+		 * @return Incidencias importadas
+		 */
+		public long getImportadas() {
+			return importadas;
+		}
+
+		/**
+		 * Getter del número de registros rechazados por no ser válidos o no poder insertarse
+		 * @return Registros rechazados
+		 */
+		public long getRechazadas() {
+			return rechazadas;
+		}
+
+		/**
+		 * Getter de los mensajes de los primeros errores
+		 * @return Mensajes de error, como mucho 100 más los de lotes descartados y la interrupción
+		 */
+		public List<String> getErrores() {
+			return errores;
+		}
+
+		/**
+		 * Getter del motivo por el que no se leyó el fichero hasta el final
+		 * @return El motivo con la línea en la que se interrumpió, o null si se leyó entero
+		 */
+		public String getInterrupcion() {
+			return interrupcion;
+		}
+
+		/**
+		 * Representacion en forma de cadena del informe
+		 * @return Una cadena con el resumen y los errores
+		 */
+		@Override
+		public String toString() {
+			double segundos = nanos / 1e9;
+			StringBuilder informe = new StringBuilder(String.format(Locale.ROOT,
+					"Importación %s en %.1f s: %d leídas, %d importadas (%.0f filas/s), %d rechazadas",
+					interrupcion == null ? "terminada" : "interrumpida", segundos, leidas, importadas, segundos > 0 ? importadas / segundos : 0.0, rechazadas));
+			for (String error : errores) {
+				informe.append(System.lineSeparator()).append("  ").append(error);
+			}
+			if (rechazadas > errores.size()) {
+				informe.append(System.lineSeparator()).append("  ...");
+			}
+			return informe.toString();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package aplicacion;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de ficheros CSV registro a registro, sin cargar el fichero en memoria.
+ * <p>
+ * Sigue el formato habitual (RFC 4180): los campos pueden ir entre comillas dobles, dentro
+ * de ellas pueden aparecer el separador y saltos de línea, y una comilla se escribe doblada.
+ */
+class LectorCSV {
+	private final Reader entrada;
+	private final char separador;
+	private final char[] buffer = new char[8192];
+	private int posicion;
+	private int limite;
+	private long linea = 1;
+	private long lineaRegistro;
+
+	/**
+	 * Constructor del lector
+	 * @param entrada	Texto CSV; conviene que no tenga buffer propio, el lector ya lo tiene
+	 * @param separador	Separador de campos
+	 */
+	LectorCSV(Reader entrada, char separador) {
+		this.entrada = entrada;
+		this.separador = separador;
+	}
+
+	/**
+	 * Lee el siguiente registro
+	 * @return Los campos del registro, o null al final del fichero
+	 * @throws IOException si falla la lectura o hay unas comillas sin cerrar
+	 */
+	List<String> leer() throws IOException {
+		int c = siguiente();
+		if (c < 0) {
+			return null;
+		}
+		lineaRegistro = linea;
+		List<String> campos = new ArrayList<>();
+		StringBuilder campo = new StringBuilder();
+		boolean entreComillas = false;
+		boolean citado = false;
+		while (true) {
+			if (entreComillas) {
+				if (c < 0) {
+					throw new IOException("Comillas sin cerrar en el registro de la línea " + lineaRegistro);
+				}
+				if (c == '"') {
+					int despues = siguiente();
+					if (despues == '"') {
+						campo.append('"');
+					} else {
+						entreComillas = false;
+						c = despues;
+						continue;
+					}
+				} else {
+					if (c == '\n') {
+						linea++;
+					}
+					campo.append((char) c);
+				}
+			} else if (c == '"' && campo.length() == 0 && !citado) {
+				entreComillas = true;
+				citado = true;
+			} else if (c == separador) {
+				campos.add(campo.toString());
+				campo.setLength(0);
+				citado = false;
+			} else if (c == '\n' || c < 0) {
+				if (c == '\n') {
+					linea++;
+				}
+				break;
+			} else if (c != '\r') {
+				campo.append((char) c);
+			}
+			c = siguiente();
+		}
+		campos.add(campo.toString());
+		return campos;
+	}
+
+	/**
+	 * Getter de la línea del fichero en la que empieza el último registro leído
+	 * @return Número de línea, empezando en 1
+	 */
+	long getLineaRegistro() {
+		return lineaRegistro;
+	}
+
+	private int siguiente() throws IOException {
+		if (posicion == limite) {
+			limite = entrada.read(buffer, 0, buffer.length);
+			posicion = 0;
+			if (limite <= 0) {
+				limite = 0;
+				return -1;
+			}
+		}
+		return buffer[posicion++];
+	}
+}
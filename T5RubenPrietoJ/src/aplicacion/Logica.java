@@ -1,7 +1,8 @@
 package aplicacion;
 
 import java.sql.Connection;
-import java.text.ParseException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -11,14 +12,20 @@ import java.util.Scanner;
 import dominio.Estado;
 import dominio.Incidencias;
 import dominio.Listas;
+import monitorizacion.EventoTransicion;
 import persistencia.IncidenciasDAO;
 import presentacion.Interfaz;
+import presentacion.RenderizadorIncidencias;
 
 /**
  * La clase Logica contiene la lógica principal de la aplicación que gestiona las incidencias.
  */
 public class Logica {
 	/**
+     * Número de códigos pendientes que se muestran antes de pedir el de la incidencia a buscar.
+     */
+	private static final int CODIGOS_SUGERIDOS = 20;
+	/**
      * Lista de incidencias manejadas por la aplicación.
      */
 	private Listas listas;
@@ -39,20 +46,18 @@ public class Logica {
         switch (opcion) {
             case 1 -> { // Registrar incidencia
                 ArrayList<String> incidenciasPendientes = Interfaz.registrarIncidencia();
-                String codigo = generarCodigoIncidencia(new Date());
+                EventoTransicion evento = EventoTransicion.iniciar();
                 boolean operacionCorrecta = IncidenciasDAO.registrarIncidencia(con, Estado.Pendiente,
                         Integer.parseInt(incidenciasPendientes.get(0)), incidenciasPendientes.get(1));
+                evento.terminar(opcion, null, Estado.Pendiente, null, operacionCorrecta);
                 Interfaz.informaResultado(opcion, operacionCorrecta);
             }
             case 2 -> { // Buscar incidencia
-            	List<Incidencias> pendientes = IncidenciasDAO.getIncidenciasPendientes(con);
-                System.out.println("Lista de incidencias pendientes:");
-                for (Incidencias incidencia : pendientes) {
-                    System.out.println("Código: " + incidencia.getIdentificador());
-                }
+                System.out.println("Primeras incidencias pendientes:");
+                RenderizadorIncidencias.consola().listarCodigos(con, Estado.Pendiente, CODIGOS_SUGERIDOS);
                 String identificador = Interfaz.identificadorIncidencia(opcion);
-                boolean operacionCorrecta = IncidenciasDAO.buscarIncidencia(con, identificador) != null;
                 Incidencias incidenciaEncontrada = IncidenciasDAO.buscarIncidencia(con, identificador);
+                boolean operacionCorrecta = incidenciaEncontrada != null;
                 if (incidenciaEncontrada != null) {
                     System.out.println("\nInformación de la incidencia:");
                     System.out.println(incidenciaEncontrada);
@@ -71,10 +76,12 @@ public class Logica {
                 String identificador = Interfaz.identificadorIncidencia(opcion);
                 ArrayList<String> incidenciasEliminadas = Interfaz.eliminarIncidencia();
                 try {
-                    Date fechaEliminacion = new SimpleDateFormat("dd/MM/yyyy").parse(incidenciasEliminadas.get(0));
+                    LocalDate fechaEliminacion = LocalDate.parse(incidenciasEliminadas.get(0), Incidencias.FORMATO_FECHA_ENTRADA);
+                    EventoTransicion evento = EventoTransicion.iniciar();
                     boolean operacionCorrecta = IncidenciasDAO.eliminarIncidencia(con, identificador, fechaEliminacion, incidenciasEliminadas.get(1));
+                    evento.terminar(opcion, Estado.Pendiente, Estado.Eliminada, identificador, operacionCorrecta);
                     Interfaz.informaResultado(opcion, operacionCorrecta);
-                } catch (ParseException e) {
+                } catch (DateTimeParseException e) {
                     e.printStackTrace();
                 }
             }
@@ -82,10 +89,12 @@ public class Logica {
                 String identificador = Interfaz.identificadorIncidencia(opcion);
                 ArrayList<String> incidenciasResueltas = Interfaz.resolverIncidencia();
                 try {
-                    Date fechaResolucion = new SimpleDateFormat("dd/MM/yyyy").parse(incidenciasResueltas.get(0));
+                    LocalDate fechaResolucion = LocalDate.parse(incidenciasResueltas.get(0), Incidencias.FORMATO_FECHA_ENTRADA);
+                    EventoTransicion evento = EventoTransicion.iniciar();
                     boolean operacionCorrecta = IncidenciasDAO.resolverIncidencia(con, identificador, fechaResolucion, incidenciasResueltas.get(1));
+                    evento.terminar(opcion, Estado.Pendiente, Estado.Resuelta, identificador, operacionCorrecta);
                     Interfaz.informaResultado(opcion, operacionCorrecta);
-                } catch (ParseException e) {
+                } catch (DateTimeParseException e) {
                     e.printStackTrace();
                 }
             }
@@ -97,17 +106,19 @@ public class Logica {
             }
             case 7 -> { // Devolver incidencia resuelta
             	String identificador = Interfaz.identificadorIncidencia(opcion);
+                EventoTransicion evento = EventoTransicion.iniciar();
                 boolean operacionCorrecta = IncidenciasDAO.devolverIncidenciasResueltas(con, identificador);
+                evento.terminar(opcion, Estado.Resuelta, Estado.Pendiente, identificador, operacionCorrecta);
                 Interfaz.informaResultado(opcion, operacionCorrecta);
             }
             case 8 -> { // Listar incidencias pendientes
-                listarIncidencias(IncidenciasDAO.getIncidenciasPendientes(con), "Listado de incidencias pendientes:");
+                RenderizadorIncidencias.consola().listarPaginado(con, Estado.Pendiente, "Listado de incidencias pendientes:", sc);
             }
             case 9 -> { // Listar incidencias resueltas
-                listarIncidencias(IncidenciasDAO.getIncidenciasResueltas(con), "Listado de incidencias resueltas:");
+                RenderizadorIncidencias.consola().listarPaginado(con, Estado.Resuelta, "Listado de incidencias resueltas:", sc);
             }
             case 10 -> { // Listar incidencias eliminadas
-                listarIncidencias(IncidenciasDAO.getIncidenciasEliminadas(con), "Listado de incidencias eliminadas:");
+                RenderizadorIncidencias.consola().listarPaginado(con, Estado.Eliminada, "Listado de incidencias eliminadas:", sc);
             }
             default -> System.out.println("Opción no válida.");
         }
@@ -120,55 +131,21 @@ public class Logica {
      * @param comentario El comentario a mostrar antes de la lista.
      */
     public static void listarIncidencias(List<Incidencias> list, String comentario) {
-        if (list.isEmpty()) {
-            System.out.println("No hay incidencias en esta categoría.");
-        } else {
-        	System.out.println(comentario);
-            for (Incidencias incidencia : list) {
-                System.out.println("Código: " + incidencia.getIdentificador());
-                System.out.println("Estado: " + incidencia.getEstado());
-                System.out.println("Puesto: " + incidencia.getPuesto());
-                System.out.println("Problema: " + incidencia.getDescripcion());
-                // Mostrar fecha de eliminación y causa de eliminación solo para incidencias eliminadas
-                if (incidencia.getFechaEliminacion() != null && incidencia.getCausaEliminacion() != null) {
-                    System.out.println("Fecha de Eliminación: " + incidencia.getFechaEliminacion());
-                    System.out.println("Causa de Eliminación: " + incidencia.getCausaEliminacion());
-                }
-                // Mostrar fecha de resolución y resolución solo para incidencias resueltas
-                if (incidencia.getFechaResolucion() != null && incidencia.getResolucion() != null) {
-                    System.out.println("Fecha de Resolución: " + incidencia.getFechaResolucion());
-                    System.out.println("Resolución: " + incidencia.getResolucion());
-                }
-                System.out.println();
-            }
-        }
+        RenderizadorIncidencias.consola().listar(list, comentario);
     }
+
     /**
-     * Genera un código único para una incidencia basada en la fecha de registro.
+     * Lista las incidencias de un estado pidiéndolas a la base de datos por páginas,
+     * sin cargarlas antes todas en memoria.
      *
-     * @param fechaRegistro La fecha de registro de la incidencia.
-     * @return El código generado para la incidencia.
+     * @param con La conexión a la base de datos.
+     * @param estado El estado de las incidencias a listar.
+     * @param comentario El comentario a mostrar antes de la lista.
      */
-    private static String generarCodigoIncidencia(Date fechaRegistro) {
-    	SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy-HH:mm");
-        String fechaFormateada = dateFormat.format(fechaRegistro);
-
-        // Acceder al ArrayList de incidencias pendientes en el objeto listas
-        ArrayList<Incidencias> incidenciasPendientes = Listas.getIncidenciasPendientes();
-
-        // Contar el número de incidencias registradas en la misma fecha
-        int contador = 1;
-        for (Incidencias incidencia : incidenciasPendientes) {
-            Date fechaIncidencia = incidencia.getFechaIncidencia();
-            if (mismoDia(fechaRegistro, fechaIncidencia)) {
-                contador++;
-            }
-        }
-
-        // Concatenar la fecha formateada y el contador para generar el código único
-        return fechaFormateada + "-" + contador;
+    public static void listarIncidencias(Connection con, Estado estado, String comentario) {
+        RenderizadorIncidencias.consola().listar(con, estado, comentario);
     }
-    
+
     /**
      * Verifica si dos fechas corresponden al mismo día.
      *
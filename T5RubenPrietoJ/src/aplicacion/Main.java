@@ -2,8 +2,9 @@ package aplicacion;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.util.Scanner;
+import monitorizacion.MonitorIncidencias;
 import persistencia.ConexionBD;
+import persistencia.Migraciones;
 import presentacion.Interfaz;
 
 /**
@@ -17,8 +18,11 @@ public class Main {
 	 * @throws SQLException Excepcion en el caso de que falle la conexion a la base de datos
 	 */
 	public static void main(String[] args) throws SQLException {
-		Connection con = ConexionBD.obtenerConexion();
-		Scanner sc = new Scanner(System.in);
+		MonitorIncidencias.publicar();
+		// Antes de atender al operador se pone el esquema al día
+		try (Connection con = ConexionBD.obtenerConexion()) {
+			Migraciones.aplicar(con);
+		}
 		Interfaz.imprimirBienvenida();
         boolean salir = false;
         while (!salir) {
@@ -28,11 +32,16 @@ public class Main {
             if (opcion == 11) {
                 salir = true;
             } else {
-                Logica.ejecutarOpcion(opcion, sc, con);
+                // Cada opción toma una conexión del pool y la devuelve al terminar; la entrada se
+                // lee siempre con el escáner de Interfaz para no repartir System.in entre dos
+                try (Connection con = ConexionBD.obtenerConexion()) {
+                    Logica.ejecutarOpcion(opcion, Interfaz.sc, con);
+                }
             }
             Interfaz.esperaIntro();
         }
         System.out.println("Gracias por usar la aplicación. ¡Hasta luego!");
+        ConexionBD.cerrarPool();
 	}
 
 }
@@ -0,0 +1,111 @@
+package concurrencia;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creación de los ejecutores de tareas de la aplicación.
+ * <p>
+ * Usa un hilo virtual por tarea si la máquina virtual los tiene (Java 21 o posterior) y, si
+ * no, un grupo fijo de hilos de plataforma con una cola acotada. En los dos casos el ejecutor
+ * admite como mucho {@code hilos + cola} tareas sin terminar: las que llegan de más se
+ * rechazan con {@link RejectedExecutionException}, para que quien envía el trabajo decida qué
+ * hacer en lugar de ejecutarlo en su propio hilo o acumularlo sin límite.
+ */
+public final class Hilos {
+
+	private Hilos() {
+	}
+
+	/**
+	 * Crea un ejecutor de tareas acotado
+	 * @param nombre	Prefijo del nombre de los hilos del grupo
+	 * @param hilos		Número de tareas ejecutándose a la vez en el grupo de plataforma
+	 * @param cola		Tareas que esperan a un hilo
+	 * @param demonio	Si los hilos del grupo no impiden que termine la aplicación
+	 * @return El ejecutor
+	 */
+	public static ExecutorService crearEjecutor(String nombre, int hilos, int cola, boolean demonio) {
+		try {
+			Method hilosVirtuales = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return new Acotado((ExecutorService) hilosVirtuales.invoke(null), hilos + cola);
+		} catch (ReflectiveOperationException e) {
+			// Máquina virtual anterior a Java 21
+		}
+		AtomicInteger numero = new AtomicInteger();
+		return new ThreadPoolExecutor(hilos, hilos, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(cola), tarea -> {
+			Thread hilo = new Thread(tarea, nombre + "-" + numero.incrementAndGet());
+			hilo.setDaemon(demonio);
+			return hilo;
+		}, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Ejecutor que limita las tareas sin terminar de otro ejecutor que no tiene límite, como
+	 * el de un hilo virtual por tarea
+	 */
+	private static final class Acotado extends AbstractExecutorService {
+		private final ExecutorService ejecutor;
+		private final Semaphore plazas;
+		private final int maximo;
+
+		private Acotado(ExecutorService ejecutor, int maximo) {
+			this.ejecutor = ejecutor;
+			this.plazas = new Semaphore(maximo);
+			this.maximo = maximo;
+		}
+
+		@Override
+		public void execute(Runnable tarea) {
+			if (!plazas.tryAcquire()) {
+				throw new RejectedExecutionException("Ya hay " + maximo + " tareas sin terminar");
+			}
+			try {
+				ejecutor.execute(() -> {
+					try {
+						tarea.run();
+					} finally {
+						plazas.release();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				plazas.release();
+				throw e;
+			}
+		}
+
+		@Override
+		public void shutdown() {
+			ejecutor.shutdown();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return ejecutor.shutdownNow();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return ejecutor.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return ejecutor.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long tiempo, TimeUnit unidad) throws InterruptedException {
+			return ejecutor.awaitTermination(tiempo, unidad);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package dominio;
+
+/**
+ * Datos que aporta el usuario para registrar una nueva incidencia
+ */
+public class DatosIncidencia {
+	/**
+	 * Puesto relacionado con la incidencia.
+	 */
+	private final int puesto;
+	/**
+	 * Descripción de la incidencia.
+	 */
+	private final String descripcion;
+
+	/**
+	 * Constructor de la clase DatosIncidencia
+	 * @param puesto		Puesto relacionado con la incidencia
+	 * @param descripcion	Descripcion de la incidencia
+	 */
+	public DatosIncidencia(int puesto, String descripcion) {
+		this.puesto = puesto;
+		this.descripcion = descripcion;
+	}
+
+	/**
+	 * Getter de puesto
+	 * @return	Puesto
+	 */
+	public int getPuesto() {
+		return puesto;
+	}
+
+	/**
+	 * Getter de descripcion
+	 * @return	Descripcion
+	 */
+	public String getDescripcion() {
+		return descripcion;
+	}
+}
@@ -1,9 +1,10 @@
 package dominio;
 
 import java.io.Serializable;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 
 /**
@@ -13,15 +14,27 @@ public class Incidencias implements Serializable{
 	/**
 	 * ID Serializable
 	 */
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
+	/**
+	 * Formato de la fecha y hora con la que empieza el identificador (dd/MM/yyyy-HH:mm-N)
+	 */
+	public static final DateTimeFormatter FORMATO_CODIGO = DateTimeFormatter.ofPattern("dd/MM/yyyy-HH:mm");
+	/**
+	 * Formato con el que se muestran las fechas
+	 */
+	public static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+	/**
+	 * Formato con el que se leen las fechas que se piden; admite día y mes con una o dos cifras (1/2/2024)
+	 */
+	public static final DateTimeFormatter FORMATO_FECHA_ENTRADA = DateTimeFormatter.ofPattern("d/M/yyyy");
 	/**
      * Estado de la incidencia.
      */
     private Estado estado;
 	/**
-     * Fecha de la incidencia.
+     * Fecha de la incidencia, obtenida del identificador la primera vez que se pide.
      */
-    private Date fechaIncidencia;
+    private transient LocalDateTime fechaIncidencia;
 	/**
      * Identificador de la incidencia.
      */
@@ -37,15 +50,15 @@ public class Incidencias implements Serializable{
 	/**
      * Fecha de registro de la incidencia.
      */
-    private Date fechaRegistro;
+    private LocalDate fechaRegistro;
 	/**
      * Fecha de eliminación de la incidencia.
      */
-    private Date fechaEliminacion;
+    private LocalDate fechaEliminacion;
 	/**
      * Fecha de resolución de la incidencia.
      */
-    private Date fechaResolucion;
+    private LocalDate fechaResolucion;
 	/**
      * Causa de eliminación de la incidencia.
      */
@@ -64,20 +77,31 @@ public class Incidencias implements Serializable{
 	 */
     public Incidencias(String codigo, Estado estado, int puesto, String descripcion) {
         this.identificador = codigo;
-        this.estado = Estado.Pendiente;
+        this.estado = estado;
         this.puesto = puesto;
         this.descripcion = descripcion;
-        this.fechaRegistro = new Date();
-
-        // Extraemos y parseamos la fecha del código
-        String[] partes = codigo.split("-");
-        String fechaStr = partes[0] + "-" + partes[1];
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy-HH:mm");
-        try {
-            this.fechaIncidencia = sdf.parse(fechaStr);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
+    }
+
+    /**
+     * Constructor de la clase Incidencias con todos sus datos
+     * @param codigo			Identificador unico de la incidencia
+     * @param estado			Estado de la incidencia
+     * @param puesto			Puesto relacionado con la incidencia
+     * @param descripcion		Descripcion de la incidencia
+     * @param fechaRegistro		Fecha de registro de la incidencia
+     * @param fechaResolucion	Fecha de resolucion de la incidencia, o null si no esta resuelta
+     * @param resolucion		Resolucion de la incidencia, o null si no esta resuelta
+     * @param fechaEliminacion	Fecha de eliminacion de la incidencia, o null si no esta eliminada
+     * @param causaEliminacion	Causa de eliminacion de la incidencia, o null si no esta eliminada
+     */
+    public Incidencias(String codigo, Estado estado, int puesto, String descripcion, LocalDate fechaRegistro,
+    		LocalDate fechaResolucion, String resolucion, LocalDate fechaEliminacion, String causaEliminacion) {
+        this(codigo, estado, puesto, descripcion);
+        this.fechaRegistro = fechaRegistro;
+        this.fechaResolucion = fechaResolucion;
+        this.resolucion = resolucion;
+        this.fechaEliminacion = fechaEliminacion;
+        this.causaEliminacion = causaEliminacion;
     }
 
     // Getters y Setters
@@ -99,10 +123,21 @@ public class Incidencias implements Serializable{
     }
 
     /**
-     * Getter de fecha de incidencia
-     * @return Fecha de incidencia
-     */
-    public Date getFechaIncidencia() {
+     * Getter de fecha de incidencia. Se obtiene del identificador (dd/MM/yyyy-HH:mm-N)
+     * la primera vez que se pide.
+     * @return Fecha de incidencia, o null si el identificador no tiene ese formato
+     */
+    public LocalDateTime getFechaIncidencia() {
+        if (fechaIncidencia == null && identificador != null) {
+            int fin = identificador.lastIndexOf('-');
+            if (fin > 0) {
+                try {
+                    fechaIncidencia = LocalDateTime.parse(identificador.substring(0, fin), FORMATO_CODIGO);
+                } catch (DateTimeParseException e) {
+                    // Identificador sin fecha: se deja sin fecha de incidencia
+                }
+            }
+        }
         return fechaIncidencia;
     }
 
@@ -110,7 +145,7 @@ public class Incidencias implements Serializable{
      * Setter fecha de incidencia
      * @param fechaIncidencia Fecha de incidencia
      */
-    public void setFechaIncidencia(Date fechaIncidencia) {
+    public void setFechaIncidencia(LocalDateTime fechaIncidencia) {
         this.fechaIncidencia = fechaIncidencia;
     }
 
@@ -128,6 +163,7 @@ public class Incidencias implements Serializable{
      */
     public void setIdentificador(String identificador) {
         this.identificador = identificador;
+        this.fechaIncidencia = null;
     }
 
     /**
@@ -150,7 +186,7 @@ public class Incidencias implements Serializable{
      * Getter de fecha de registro
      * @return	Fecha de registro
      */
-    public Date getFechaRegistro() {
+    public LocalDate getFechaRegistro() {
         return fechaRegistro;
     }
 
@@ -158,7 +194,7 @@ public class Incidencias implements Serializable{
      * Setter de fecha de registro
      * @param fechaRegistro	Fecha de registro
      */
-    public void setFechaRegistro(Date fechaRegistro) {
+    public void setFechaRegistro(LocalDate fechaRegistro) {
         this.fechaRegistro = fechaRegistro;
     }
 
@@ -182,7 +218,7 @@ public class Incidencias implements Serializable{
      * Getter de fecha de eliminacion
      * @return	Fecha de eliminacion
      */
-    public Date getFechaEliminacion() {
+    public LocalDate getFechaEliminacion() {
         return fechaEliminacion;
     }
 
@@ -190,7 +226,7 @@ public class Incidencias implements Serializable{
      * Setter de fecha de eliminacion
      * @param fechaEliminacion	Fecha de eliminacion
      */
-    public void setFechaEliminacion(Date fechaEliminacion) {
+    public void setFechaEliminacion(LocalDate fechaEliminacion) {
         this.fechaEliminacion = fechaEliminacion;
     }
 
@@ -198,7 +234,7 @@ public class Incidencias implements Serializable{
      * Getter de fecha de resolucion
      * @return	Fecha de resolucion
      */
-    public Date getFechaResolucion() {
+    public LocalDate getFechaResolucion() {
         return fechaResolucion;
     }
 
@@ -206,7 +242,7 @@ public class Incidencias implements Serializable{
      * Setter de fecha de resolucion
      * @param fechaResolucion	Fecha de resolucion
      */
-    public void setFechaResolucion(Date fechaResolucion) {
+    public void setFechaResolucion(LocalDate fechaResolucion) {
         this.fechaResolucion = fechaResolucion;
     }
 
@@ -247,7 +283,7 @@ public class Incidencias implements Serializable{
      * @param fechaEliminacion	Fecha de eliminacion de la incidencia.
      * @param causaEliminacion	Causa de eliminacion de la incidencia.
      */
-    public void eliminarIncidencia(Date fechaEliminacion, String causaEliminacion) {
+    public void eliminarIncidencia(LocalDate fechaEliminacion, String causaEliminacion) {
         this.estado = Estado.Eliminada;
         this.fechaEliminacion = fechaEliminacion;
         this.causaEliminacion = causaEliminacion;
@@ -258,7 +294,7 @@ public class Incidencias implements Serializable{
      * @param fechaResolucion	Fecha de resolucion de la incidencia.
      * @param resolucion		Resolucion de la incidencia.
      */
-    public void resolverIncidencia(Date fechaResolucion, String resolucion) {
+    public void resolverIncidencia(LocalDate fechaResolucion, String resolucion) {
         this.estado = Estado.Resuelta;
         this.fechaResolucion = fechaResolucion;
         this.resolucion = resolucion;
@@ -270,7 +306,7 @@ public class Incidencias implements Serializable{
      * @param nuevaFechaResolucion	Nueva fecha de resolucion de la incidencia.
      * @param nuevaResolucion		Nueva resolucion de la incidencia.
      */
-    public void modificarIncidenciaResuelta(String nuevaDescripcion, Date nuevaFechaResolucion, String nuevaResolucion) {
+    public void modificarIncidenciaResuelta(String nuevaDescripcion, LocalDate nuevaFechaResolucion, String nuevaResolucion) {
         if (this.estado == Estado.Resuelta) {
             this.descripcion = nuevaDescripcion;
             this.fechaResolucion = nuevaFechaResolucion;
@@ -295,14 +331,28 @@ public class Incidencias implements Serializable{
      */
     @Override
     public String toString() {
-    	 SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
-    	    String fechaResolucion2 = (fechaResolucion != null) ? dateFormat.format(fechaResolucion) : "No disponible";
-    	    String fechaEliminacion2 = (fechaEliminacion != null) ? dateFormat.format(fechaEliminacion) : "No disponible";
-        return "Código: " + identificador + "\n" +
-               "Estado: " + estado + "\n" +
-               "Puesto: " + puesto + "\n" +
-               "Problema: " + descripcion + "\n" +
-               (estado == Estado.Eliminada ? "Fecha de eliminación: " + fechaEliminacion2 + "\n" + "Causa de eliminación: " + causaEliminacion + "\n" : "") +
-               (estado == Estado.Resuelta ? "Fecha de resolución: " + fechaResolucion2 + "\n" + "Resolución: " + resolucion + "\n" : "");
+        StringBuilder texto = new StringBuilder(128)
+                .append("Código: ").append(identificador).append('\n')
+                .append("Estado: ").append(estado).append('\n')
+                .append("Puesto: ").append(puesto).append('\n')
+                .append("Problema: ").append(descripcion).append('\n');
+        if (estado == Estado.Eliminada) {
+            texto.append("Fecha de eliminación: ").append(formatearFecha(fechaEliminacion)).append('\n')
+                 .append("Causa de eliminación: ").append(causaEliminacion).append('\n');
+        }
+        if (estado == Estado.Resuelta) {
+            texto.append("Fecha de resolución: ").append(formatearFecha(fechaResolucion)).append('\n')
+                 .append("Resolución: ").append(resolucion).append('\n');
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Formatea una fecha para mostrarla
+     * @param fecha	Fecha a formatear
+     * @return	La fecha con formato dd/MM/yyyy, o "No disponible" si es null
+     */
+    private static String formatearFecha(LocalDate fecha) {
+        return fecha != null ? FORMATO_FECHA.format(fecha) : "No disponible";
     }
 }
@@ -1,63 +1,90 @@
 package dominio;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
  * Clase que se encarga de todos los movimientos relacionados con las listas
+ * <p>
+ * Las incidencias se guardan indexadas por identificador, de modo que buscar, actualizar
+ * o moverlas entre pendientes, resueltas y eliminadas cuesta lo mismo sea cual sea el
+ * número de incidencias. Además se mantienen índices por puesto y por día de registro.
  */
 public class Listas {
 		/**
-		 * ArrayList que guarda las incidencias con estado pendiente
+		 * Incidencias de cada estado por identificador, en orden de llegada a ese estado
 		 */
-	    private static ArrayList<Incidencias> incidencias_pendientes;
+	    private final Map<Estado, LinkedHashMap<String, Incidencias>> incidenciasPorEstado = new EnumMap<>(Estado.class);
 	    /**
-		 * ArrayList que guarda las incidencias con estado resuelta
+		 * Índice principal de todas las incidencias por identificador
 		 */
-	    private ArrayList<Incidencias> incidencias_resueltas;
+	    private final Map<String, Incidencias> incidencias = new HashMap<>();
 	    /**
-		 * ArrayList que guarda las incidencias con estado eliminada
+		 * Índice de identificadores por puesto
 		 */
-	    private ArrayList<Incidencias> incidencias_eliminadas;
+	    private final Map<Integer, Set<String>> indicePuesto = new HashMap<>();
+	    /**
+		 * Índice de identificadores por día de registro
+		 */
+	    private final Map<LocalDate, Set<String>> indiceDia = new HashMap<>();
 	    /**
 		 * Constructor de la clase Lista
 		 */
 	    public Listas() {
-	        incidencias_pendientes = new ArrayList<>();
-	        incidencias_resueltas = new ArrayList<>();
-	        incidencias_eliminadas = new ArrayList<>();
+	    	for (Estado estado : Estado.values()) {
+	    		incidenciasPorEstado.put(estado, new LinkedHashMap<>());
+	    	}
 	    }
 
 	    /**
-		 * Método para acceder al ArrayList de incidencias pendientes
-		 * @return Lista de incidencias pendientes
+		 * Método para acceder a las incidencias pendientes
+		 * @return Vista de solo lectura de las incidencias pendientes
 		 */
-	    public static ArrayList<Incidencias> getIncidenciasPendientes() {
-	        return incidencias_pendientes;
+	    public Collection<Incidencias> getIncidenciasPendientes() {
+	        return Collections.unmodifiableCollection(incidenciasPorEstado.get(Estado.Pendiente).values());
 	    }
 
 	    /**
-		 * Método para acceder al ArrayList de incidencias resueltas
-		 * @return Lista de incidencias resueltas
+		 * Método para acceder a las incidencias resueltas
+		 * @return Vista de solo lectura de las incidencias resueltas
 		 */
-	    public ArrayList<Incidencias> getIncidenciasResueltas() {
-	        return incidencias_resueltas;
+	    public Collection<Incidencias> getIncidenciasResueltas() {
+	        return Collections.unmodifiableCollection(incidenciasPorEstado.get(Estado.Resuelta).values());
 	    }
 
 	    /**
-		 * Método para acceder al ArrayList de incidencias eliminadas
-		 * @return Lista de incidencias eliminadas
+		 * Método para acceder a las incidencias eliminadas
+		 * @return Vista de solo lectura de las incidencias eliminadas
 		 */
-	    public ArrayList<Incidencias> getIncidenciasEliminadas() {
-	        return incidencias_eliminadas;
+	    public Collection<Incidencias> getIncidenciasEliminadas() {
+	        return Collections.unmodifiableCollection(incidenciasPorEstado.get(Estado.Eliminada).values());
 	    }
 
 	    /**
-	     * Método que se encarga de añadir una incidencia en el array list de incidencias pendientes
+	     * Método que se encarga de añadir una incidencia a las incidencias pendientes
 	     * @param incidencia Incidencias pendiente a añadir
 	     */
 	    public void agregarIncidencia(Incidencias incidencia) {
-	        incidencias_pendientes.add(incidencia);
+	    	String identificador = incidencia.getIdentificador();
+	    	Incidencias anterior = incidencias.put(identificador, incidencia);
+	    	if (anterior != null) {
+	    		quitarDeIndices(anterior);
+	    		for (LinkedHashMap<String, Incidencias> porEstado : incidenciasPorEstado.values()) {
+	    			porEstado.remove(identificador);
+	    		}
+	    	}
+	        incidenciasPorEstado.get(Estado.Pendiente).put(identificador, incidencia);
+	        agregarAIndices(incidencia);
 	    }
 
 	    /**
@@ -65,8 +92,7 @@ public class Listas {
 	     * @param incidencia Incidencia a eliminar
 	     */
 	    public void eliminarIncidencia(Incidencias incidencia) {
-	        incidencias_pendientes.remove(incidencia);
-	        incidencias_eliminadas.add(incidencia);
+	        mover(incidencia, Estado.Pendiente, Estado.Eliminada);
 	    }
 
 	    /**
@@ -74,22 +100,63 @@ public class Listas {
 	     * @param incidencia Incidencia a resolver
 	     */
 	    public void resolverIncidencia(Incidencias incidencia) {
-	        incidencias_pendientes.remove(incidencia);
-	        incidencias_resueltas.add(incidencia);
+	        mover(incidencia, Estado.Pendiente, Estado.Resuelta);
+	    }
+
+	    /**
+	     * Método que se encarga de quitar de la lista de resueltas la incidencia y devolverla a la lista de pendientes
+	     * @param incidencia Incidencia a devolver
+	     */
+	    public void devolverIncidencia(Incidencias incidencia) {
+	        mover(incidencia, Estado.Resuelta, Estado.Pendiente);
+	    }
+
+	    /**
+	     * Método que mueve una incidencia de un estado a otro por su identificador. La incidencia
+	     * pasa al estado de destino y sustituye a la guardada en todos los índices, por si se
+	     * recibe otro objeto con el mismo identificador.
+	     * @param incidencia	Incidencia a mover
+	     * @param origen		Estado en el que está la incidencia
+	     * @param destino		Estado al que pasa la incidencia
+	     */
+	    private void mover(Incidencias incidencia, Estado origen, Estado destino) {
+	    	String identificador = incidencia.getIdentificador();
+	    	if (incidenciasPorEstado.get(origen).remove(identificador) != null) {
+	    		incidencia.setEstado(destino);
+	    		Incidencias anterior = incidencias.put(identificador, incidencia);
+	    		if (anterior != null) {
+	    			quitarDeIndices(anterior);
+	    		}
+	    		agregarAIndices(incidencia);
+	    		incidenciasPorEstado.get(destino).put(identificador, incidencia);
+	    	}
 	    }
 
 	    /**
-	     * Método que se encarga de iterar en el array list de incidencias pendientes hasta encontrar la incidencia que solicita el usuario
+	     * Método que busca una incidencia pendiente por su identificador
 	     * @param identificador Identificador que nos da el usuario para buscar la incidencia
 	     * @return Devuelve la incidencia si la encuentra o vacía si no la encuentra
 	     */
 	    public Incidencias buscarIncidencia(String identificador) {
-	        for (Incidencias incidencia : incidencias_pendientes) {
-	            if (incidencia.getIdentificador().equals(identificador)) {
-	                return incidencia;
-	            }
-	        }
-	        return null;
+	        return incidenciasPorEstado.get(Estado.Pendiente).get(identificador);
+	    }
+
+	    /**
+	     * Método que busca las incidencias de un puesto, sea cual sea su estado
+	     * @param puesto Puesto de las incidencias
+	     * @return Lista de incidencias del puesto
+	     */
+	    public List<Incidencias> buscarPorPuesto(int puesto) {
+	    	return resolver(indicePuesto.get(puesto));
+	    }
+
+	    /**
+	     * Método que busca las incidencias registradas un día, sea cual sea su estado
+	     * @param dia Día de registro de las incidencias
+	     * @return Lista de incidencias registradas ese día
+	     */
+	    public List<Incidencias> buscarPorDia(LocalDate dia) {
+	    	return resolver(indiceDia.get(dia));
 	    }
 
 	    /**
@@ -97,12 +164,76 @@ public class Listas {
 	     * @param incidenciaActualizada Devolvemos la incidencia actualizada
 	     */
 	    public void actualizarIncidencia(Incidencias incidenciaActualizada) {
-	        for (int i = 0; i < incidencias_pendientes.size(); i++) {
-	            if (incidencias_pendientes.get(i).getIdentificador().equals(incidenciaActualizada.getIdentificador())) {
-	                incidencias_pendientes.set(i, incidenciaActualizada);
-	                return;
-	            }
-	        }
+	    	String identificador = incidenciaActualizada.getIdentificador();
+	    	Incidencias anterior = incidenciasPorEstado.get(Estado.Pendiente).get(identificador);
+	    	if (anterior != null) {
+	    		agregarIncidencia(incidenciaActualizada);
+	    	}
+	    }
+
+	    /**
+	     * Método que convierte un conjunto de identificadores del índice en sus incidencias
+	     * @param identificadores Identificadores del índice, puede ser null
+	     * @return Lista de incidencias
+	     */
+	    private List<Incidencias> resolver(Set<String> identificadores) {
+	    	if (identificadores == null) {
+	    		return new ArrayList<>();
+	    	}
+	    	List<Incidencias> resultado = new ArrayList<>(identificadores.size());
+	    	for (String identificador : identificadores) {
+	    		resultado.add(incidencias.get(identificador));
+	    	}
+	    	return resultado;
+	    }
+
+	    /**
+	     * Método que añade una incidencia a los índices secundarios
+	     * @param incidencia Incidencia a añadir
+	     */
+	    private void agregarAIndices(Incidencias incidencia) {
+	    	String identificador = incidencia.getIdentificador();
+	    	indicePuesto.computeIfAbsent(incidencia.getPuesto(), p -> new LinkedHashSet<>()).add(identificador);
+	    	LocalDate dia = diaRegistro(incidencia);
+	    	if (dia != null) {
+	    		indiceDia.computeIfAbsent(dia, d -> new LinkedHashSet<>()).add(identificador);
+	    	}
+	    }
+
+	    /**
+	     * Método que quita una incidencia de los índices secundarios
+	     * @param incidencia Incidencia a quitar
+	     */
+	    private void quitarDeIndices(Incidencias incidencia) {
+	    	String identificador = incidencia.getIdentificador();
+	    	quitar(indicePuesto, incidencia.getPuesto(), identificador);
+	    	LocalDate dia = diaRegistro(incidencia);
+	    	if (dia != null) {
+	    		quitar(indiceDia, dia, identificador);
+	    	}
+	    }
+
+	    /**
+	     * Método que quita un identificador del conjunto de una clave de un índice
+	     * @param <K>			Tipo de la clave del índice
+	     * @param indice		Índice
+	     * @param clave			Clave del índice
+	     * @param identificador	Identificador a quitar
+	     */
+	    private static <K> void quitar(Map<K, Set<String>> indice, K clave, String identificador) {
+	    	Set<String> identificadores = indice.get(clave);
+	    	if (identificadores != null && identificadores.remove(identificador) && identificadores.isEmpty()) {
+	    		indice.remove(clave);
+	    	}
+	    }
+
+	    /**
+	     * Método que obtiene el día de registro de una incidencia
+	     * @param incidencia Incidencia
+	     * @return Día de registro, o null si no tiene fecha de registro
+	     */
+	    private static LocalDate diaRegistro(Incidencias incidencia) {
+	    	return incidencia.getFechaRegistro();
 	    }
 
 }
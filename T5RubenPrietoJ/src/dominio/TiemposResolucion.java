@@ -0,0 +1,108 @@
+package dominio;
+
+/**
+ * Distribución de los días que tardan en resolverse las incidencias
+ * (fecha de resolución menos fecha de registro).
+ * <p>
+ * Se guarda como histograma: para cada número de días distinto, cuántas incidencias han
+ * tardado eso. Como los días son pocos valores, ocupa muy poco aunque haya millones de
+ * incidencias, y de él salen exactos la media y cualquier percentil.
+ */
+public class TiemposResolucion {
+	/**
+	 * Números de días distintos, de menor a mayor
+	 */
+	private final int[] dias;
+	/**
+	 * Incidencias que han tardado cada número de días
+	 */
+	private final long[] cuentas;
+	private final long total;
+
+	/**
+	 * Constructor de los tiempos de resolución
+	 * @param dias		Números de días distintos, de menor a mayor
+	 * @param cuentas	Incidencias que han tardado cada número de días
+	 */
+	public TiemposResolucion(int[] dias, long[] cuentas) {
+		if (dias.length != cuentas.length) {
+			throw new IllegalArgumentException("Los días y las cuentas no tienen la misma longitud");
+		}
+		this.dias = dias.clone();
+		this.cuentas = cuentas.clone();
+		long suma = 0;
+		for (long cuenta : cuentas) {
+			suma += cuenta;
+		}
+		this.total = suma;
+	}
+
+	/**
+	 * Getter del número de incidencias resueltas
+	 * @return Incidencias resueltas
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Getter de la media de días de resolución
+	 * @return Media de días, 0 si no hay incidencias
+	 */
+	public double getMediaDias() {
+		if (total == 0) {
+			return 0;
+		}
+		double suma = 0;
+		for (int i = 0; i < dias.length; i++) {
+			suma += (double) dias[i] * cuentas[i];
+		}
+		return suma / total;
+	}
+
+	/**
+	 * Getter del menor número de días de resolución
+	 * @return Mínimo de días, 0 si no hay incidencias
+	 */
+	public int getMinimoDias() {
+		return dias.length == 0 ? 0 : dias[0];
+	}
+
+	/**
+	 * Getter del mayor número de días de resolución
+	 * @return Máximo de días, 0 si no hay incidencias
+	 */
+	public int getMaximoDias() {
+		return dias.length == 0 ? 0 : dias[dias.length - 1];
+	}
+
+	/**
+	 * Calcula un percentil de los días de resolución
+	 * @param percentil Percentil entre 0 y 100
+	 * @return Días en los que se han resuelto al menos ese porcentaje de incidencias, 0 si no hay incidencias
+	 */
+	public int percentil(double percentil) {
+		if (total == 0) {
+			return 0;
+		}
+		long objetivo = Math.max(1, (long) Math.ceil(total * percentil / 100.0));
+		long acumulado = 0;
+		for (int i = 0; i < dias.length; i++) {
+			acumulado += cuentas[i];
+			if (acumulado >= objetivo) {
+				return dias[i];
+			}
+		}
+		return getMaximoDias();
+	}
+
+	/**
+	 * Representacion en forma de cadena de los tiempos de resolución
+	 * @return Una cadena con el total, la media y los percentiles principales
+	 */
+	@Override
+	public String toString() {
+		return String.format("TiemposResolucion[total=%d, media=%.2f días, p50=%d, p90=%d, p99=%d, máximo=%d]",
+				total, getMediaDias(), percentil(50), percentil(90), percentil(99), getMaximoDias());
+	}
+}
@@ -0,0 +1,128 @@
+package monitorizacion;
+
+import java.util.Locale;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * Copia de las métricas de una operación en un momento dado, tal como se publica por JMX
+ */
+public class EstadisticasOperacion {
+	private final String nombre;
+	private final long llamadas;
+	private final long errores;
+	private final long filas;
+	private final double mediaMs;
+	private final double p50Ms;
+	private final double p99Ms;
+	private final double p999Ms;
+	private final double maximoMs;
+
+	/**
+	 * Constructor de las estadísticas de una operación
+	 * @param nombre	Nombre de la operación
+	 * @param llamadas	Número de llamadas
+	 * @param errores	Llamadas terminadas con una excepción
+	 * @param filas		Filas devueltas o afectadas
+	 * @param mediaMs	Latencia media en milisegundos
+	 * @param p50Ms		Percentil 50 de la latencia en milisegundos
+	 * @param p99Ms		Percentil 99 de la latencia en milisegundos
+	 * @param p999Ms	Percentil 99,9 de la latencia en milisegundos
+	 * @param maximoMs	Latencia máxima en milisegundos
+	 */
+	@ConstructorParameters({ "nombre", "llamadas", "errores", "filas", "mediaMs", "p50Ms", "p99Ms", "p999Ms", "maximoMs" })
+	public EstadisticasOperacion(String nombre, long llamadas, long errores, long filas, double mediaMs, double p50Ms,
+			double p99Ms, double p999Ms, double maximoMs) {
+		this.nombre = nombre;
+		this.llamadas = llamadas;
+		this.errores = errores;
+		this.filas = filas;
+		this.mediaMs = mediaMs;
+		this.p50Ms = p50Ms;
+		this.p99Ms = p99Ms;
+		this.p999Ms = p999Ms;
+		this.maximoMs = maximoMs;
+	}
+
+	/**
+	 * Getter del nombre de la operación
+	 * @return Nombre de la operación
+	 */
+	public String getNombre() {
+		return nombre;
+	}
+
+	/**
+	 * Getter del número de llamadas
+	 * @return Llamadas
+	 */
+	public long getLlamadas() {
+		return llamadas;
+	}
+
+	/**
+	 * Getter del número de llamadas terminadas con una excepción
+	 * @return Errores
+	 */
+	public long getErrores() {
+		return errores;
+	}
+
+	/**
+	 * Getter del total de filas devueltas o afectadas
+	 * @return Filas
+	 */
+	public long getFilas() {
+		return filas;
+	}
+
+	/**
+	 * Getter de la latencia media
+	 * @return Latencia media en milisegundos
+	 */
+	public double getMediaMs() {
+		return mediaMs;
+	}
+
+	/**
+	 * Getter del percentil 50 de la latencia
+	 * @return Mediana en milisegundos
+	 */
+	public double getP50Ms() {
+		return p50Ms;
+	}
+
+	/**
+	 * Getter del percentil 99 de la latencia
+	 * @return Percentil 99 en milisegundos
+	 */
+	public double getP99Ms() {
+		return p99Ms;
+	}
+
+	/**
+	 * Getter del percentil 99,9 de la latencia
+	 * @return Percentil 99,9 en milisegundos
+	 */
+	public double getP999Ms() {
+		return p999Ms;
+	}
+
+	/**
+	 * Getter de la latencia máxima
+	 * @return Latencia máxima en milisegundos
+	 */
+	public double getMaximoMs() {
+		return maximoMs;
+	}
+
+	/**
+	 * Representacion en forma de cadena de las estadísticas
+	 * @return Una cadena con las llamadas, los errores, las filas y las latencias
+	 */
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%s[llamadas=%d, errores=%d, filas=%d, media=%.3f ms, p50=%.3f ms, p99=%.3f ms, p99.9=%.3f ms, max=%.3f ms]",
+				nombre, llamadas, errores, filas, mediaMs, p50Ms, p99Ms, p999Ms, maximoMs);
+	}
+}
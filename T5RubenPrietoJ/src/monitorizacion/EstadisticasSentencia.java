@@ -0,0 +1,102 @@
+package monitorizacion;
+
+import java.util.Locale;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * Copia de las estadísticas de una sentencia SQL en un momento dado, tal como se publica por JMX
+ */
+public class EstadisticasSentencia {
+	private final String sql;
+	private final long ejecuciones;
+	private final long errores;
+	private final long lentas;
+	private final double totalMs;
+	private final double maximoMs;
+
+	/**
+	 * Constructor de las estadísticas de una sentencia
+	 * @param sql			Texto de la sentencia
+	 * @param ejecuciones	Número de ejecuciones
+	 * @param errores		Ejecuciones terminadas con una excepción
+	 * @param lentas		Ejecuciones que superaron el umbral de sentencia lenta
+	 * @param totalMs		Tiempo total de las ejecuciones en milisegundos
+	 * @param maximoMs		Tiempo de la ejecución más lenta en milisegundos
+	 */
+	@ConstructorParameters({ "sql", "ejecuciones", "errores", "lentas", "totalMs", "maximoMs" })
+	public EstadisticasSentencia(String sql, long ejecuciones, long errores, long lentas, double totalMs, double maximoMs) {
+		this.sql = sql;
+		this.ejecuciones = ejecuciones;
+		this.errores = errores;
+		this.lentas = lentas;
+		this.totalMs = totalMs;
+		this.maximoMs = maximoMs;
+	}
+
+	/**
+	 * Getter del texto de la sentencia
+	 * @return Texto de la sentencia
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * Getter del número de ejecuciones
+	 * @return Ejecuciones
+	 */
+	public long getEjecuciones() {
+		return ejecuciones;
+	}
+
+	/**
+	 * Getter del número de ejecuciones terminadas con una excepción
+	 * @return Errores
+	 */
+	public long getErrores() {
+		return errores;
+	}
+
+	/**
+	 * Getter del número de ejecuciones que superaron el umbral de sentencia lenta
+	 * @return Ejecuciones lentas
+	 */
+	public long getLentas() {
+		return lentas;
+	}
+
+	/**
+	 * Getter del tiempo total de las ejecuciones
+	 * @return Tiempo total en milisegundos
+	 */
+	public double getTotalMs() {
+		return totalMs;
+	}
+
+	/**
+	 * Getter del tiempo medio de las ejecuciones
+	 * @return Tiempo medio en milisegundos, 0 si no hay ninguna
+	 */
+	public double getMediaMs() {
+		return ejecuciones == 0 ? 0 : totalMs / ejecuciones;
+	}
+
+	/**
+	 * Getter del tiempo de la ejecución más lenta
+	 * @return Tiempo máximo en milisegundos
+	 */
+	public double getMaximoMs() {
+		return maximoMs;
+	}
+
+	/**
+	 * Representacion en forma de cadena de las estadísticas
+	 * @return Una cadena con las ejecuciones, los errores y los tiempos
+	 */
+	@Override
+	public String toString() {
+		return String.format(Locale.ROOT, "%s[ejecuciones=%d, errores=%d, lentas=%d, total=%.3f ms, media=%.3f ms, max=%.3f ms]",
+				sql, ejecuciones, errores, lentas, totalMs, getMediaMs(), maximoMs);
+	}
+}
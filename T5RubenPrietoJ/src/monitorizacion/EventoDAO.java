@@ -0,0 +1,77 @@
+package monitorizacion;
+
+import java.sql.Connection;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import persistencia.PoolConexiones;
+
+/**
+ * Evento de Java Flight Recorder de una operación del DAO, para poner las llamadas lentas
+ * junto a las pausas del recolector y los bloqueos de hilos de la misma grabación.
+ * <p>
+ * Por defecto solo se guardan las operaciones de más de 20 ms. El umbral se cambia al
+ * empezar la grabación con la configuración {@code incidencias.jfc} de este paquete, por
+ * ejemplo con
+ * {@code -XX:StartFlightRecording:settings=default,settings=incidencias.jfc,umbral-dao=0ms}
+ * para guardarlas todas. Sin grabación activa, {@code begin()} y {@code shouldCommit()} no
+ * hacen nada y el objeto del evento no sale del método, así que el coste es prácticamente nulo.
+ */
+@Name("incidencias.OperacionDAO")
+@Label("Operación del DAO")
+@Category({ "Incidencias", "Persistencia" })
+@Description("Llamada a una operación de IncidenciasDAO")
+@StackTrace(false)
+@Threshold("20 ms")
+public class EventoDAO extends Event {
+	@Label("Operación")
+	@Description("Operación del DAO, con el mismo nombre que en las métricas JMX")
+	private String operacion;
+	@Label("Identificador")
+	@Description("Identificador de la incidencia, si la operación es sobre una sola")
+	private String identificador;
+	@Label("Filas")
+	private long filas;
+	@Label("Conexión")
+	@Description("Número de la conexión física del pool, -1 si no es del pool")
+	private long conexion;
+	@Label("Error")
+	private boolean error;
+
+	/**
+	 * Crea el evento y empieza a medir su duración
+	 * @return El evento empezado
+	 */
+	public static EventoDAO iniciar() {
+		EventoDAO evento = new EventoDAO();
+		evento.begin();
+		return evento;
+	}
+
+	/**
+	 * Termina el evento y lo guarda si hay una grabación activa y supera el umbral; los
+	 * campos solo se calculan en ese caso
+	 * @param metricas		Métricas de la operación, de las que se toma el nombre
+	 * @param con			Conexión usada
+	 * @param identificador	Identificador de la incidencia, o null
+	 * @param filas			Filas devueltas o afectadas
+	 * @param error			Si la operación ha terminado con una excepción
+	 */
+	public void terminar(MetricasOperacion metricas, Connection con, String identificador, long filas, boolean error) {
+		end();
+		if (shouldCommit()) {
+			this.operacion = metricas.getNombre();
+			this.identificador = identificador;
+			this.filas = filas;
+			this.conexion = PoolConexiones.getIdentificador(con);
+			this.error = error;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package monitorizacion;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import dominio.Estado;
+
+/**
+ * Evento de Java Flight Recorder de un cambio de estado de una incidencia pedido desde el
+ * menú: registro, eliminación, resolución o devolución. Su duración es la de la operación en
+ * la base de datos, sin contar lo que tarda el operador en escribir los datos.
+ * <p>
+ * Como {@link EventoDAO}, por defecto guarda solo los de más de 20 ms y el umbral se cambia
+ * con la opción {@code umbral-transicion} de {@code incidencias.jfc} al empezar la grabación.
+ */
+@Name("incidencias.Transicion")
+@Label("Transición de incidencia")
+@Category({ "Incidencias", "Aplicación" })
+@Description("Cambio de estado de una incidencia desde el menú")
+@StackTrace(false)
+@Threshold("20 ms")
+public class EventoTransicion extends Event {
+	@Label("Opción")
+	private int opcion;
+	@Label("Estado de origen")
+	@Description("Vacío en el registro de una incidencia nueva")
+	private String origen;
+	@Label("Estado de destino")
+	private String destino;
+	@Label("Identificador")
+	private String identificador;
+	@Label("Correcta")
+	private boolean correcta;
+
+	/**
+	 * Crea el evento y empieza a medir su duración
+	 * @return El evento empezado
+	 */
+	public static EventoTransicion iniciar() {
+		EventoTransicion evento = new EventoTransicion();
+		evento.begin();
+		return evento;
+	}
+
+	/**
+	 * Termina el evento y lo guarda si hay una grabación activa y supera el umbral
+	 * @param opcion		Opción del menú
+	 * @param origen		Estado de origen, o null si la incidencia es nueva
+	 * @param destino		Estado de destino
+	 * @param identificador	Identificador de la incidencia, o null si aún no tiene
+	 * @param correcta		Si la transición se ha hecho
+	 */
+	public void terminar(int opcion, Estado origen, Estado destino, String identificador, boolean correcta) {
+		end();
+		if (shouldCommit()) {
+			this.opcion = opcion;
+			this.origen = origen == null ? null : origen.toString();
+			this.destino = destino.toString();
+			this.identificador = identificador;
+			this.correcta = correcta;
+			commit();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package monitorizacion;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registro de las métricas de todas las operaciones del proceso.
+ * <p>
+ * Cada clase que mide pide al cargarse las métricas de sus operaciones y las guarda en
+ * campos estáticos, así que al medir no se busca nada en el registro.
+ */
+public final class Metricas {
+	private static final ConcurrentMap<String, MetricasOperacion> OPERACIONES = new ConcurrentHashMap<>();
+
+	private Metricas() {
+	}
+
+	/**
+	 * Obtiene las métricas de una operación, creándolas si es la primera vez que se piden
+	 * @param nombre Nombre de la operación
+	 * @return Las métricas de la operación
+	 */
+	public static MetricasOperacion operacion(String nombre) {
+		return OPERACIONES.computeIfAbsent(nombre, MetricasOperacion::new);
+	}
+
+	/**
+	 * Getter de las métricas de todas las operaciones
+	 * @return Las métricas, ordenadas por nombre de operación
+	 */
+	public static List<MetricasOperacion> getOperaciones() {
+		List<MetricasOperacion> operaciones = new ArrayList<>(OPERACIONES.values());
+		operaciones.sort((a, b) -> a.getNombre().compareTo(b.getNombre()));
+		return operaciones;
+	}
+
+	/**
+	 * Vacía las métricas de todas las operaciones
+	 */
+	public static void reiniciar() {
+		OPERACIONES.values().forEach(MetricasOperacion::reiniciar);
+	}
+}
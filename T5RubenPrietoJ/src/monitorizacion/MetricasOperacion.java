@@ -0,0 +1,117 @@
+package monitorizacion;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Métricas de una operación: llamadas, errores, filas y latencias.
+ * <p>
+ * Quien mide guarda {@code System.nanoTime()} al empezar y llama a {@link #registrar} al
+ * terminar bien o a {@link #error} si la operación lanza una excepción. Todo son contadores
+ * repartidos ({@link LongAdder}) y un {@link HistogramaLatencias}, así que medir no bloquea
+ * ni reserva memoria y se puede dejar siempre activo.
+ */
+public class MetricasOperacion {
+	private final String nombre;
+	private final LongAdder llamadas = new LongAdder();
+	private final LongAdder errores = new LongAdder();
+	private final LongAdder filas = new LongAdder();
+	private final HistogramaLatencias latencias = new HistogramaLatencias();
+
+	/**
+	 * Constructor de las métricas de una operación
+	 * @param nombre Nombre de la operación
+	 */
+	MetricasOperacion(String nombre) {
+		this.nombre = nombre;
+	}
+
+	/**
+	 * Registra una llamada terminada sin errores
+	 * @param inicio	Valor de {@code System.nanoTime()} al empezar la operación
+	 * @param filas		Filas devueltas o afectadas
+	 */
+	public void registrar(long inicio, long filas) {
+		latencias.registrar(System.nanoTime() - inicio);
+		llamadas.increment();
+		this.filas.add(filas);
+	}
+
+	/**
+	 * Registra una llamada terminada con una excepción
+	 * @param inicio Valor de {@code System.nanoTime()} al empezar la operación
+	 */
+	public void error(long inicio) {
+		latencias.registrar(System.nanoTime() - inicio);
+		llamadas.increment();
+		errores.increment();
+	}
+
+	/**
+	 * Getter del nombre de la operación
+	 * @return Nombre de la operación
+	 */
+	public String getNombre() {
+		return nombre;
+	}
+
+	/**
+	 * Getter del número de llamadas, con error o sin él
+	 * @return Llamadas
+	 */
+	public long getLlamadas() {
+		return llamadas.sum();
+	}
+
+	/**
+	 * Getter del número de llamadas terminadas con una excepción
+	 * @return Errores
+	 */
+	public long getErrores() {
+		return errores.sum();
+	}
+
+	/**
+	 * Getter del total de filas devueltas o afectadas
+	 * @return Filas
+	 */
+	public long getFilas() {
+		return filas.sum();
+	}
+
+	/**
+	 * Getter del histograma de latencias
+	 * @return Latencias de las llamadas
+	 */
+	public HistogramaLatencias getLatencias() {
+		return latencias;
+	}
+
+	/**
+	 * Método que copia el estado actual de las métricas
+	 * @return Copia de las métricas, con las latencias en milisegundos
+	 */
+	public EstadisticasOperacion getEstadisticas() {
+		return new EstadisticasOperacion(nombre, llamadas.sum(), errores.sum(), filas.sum(), latencias.getMedia() / 1e6,
+				latencias.percentil(50) / 1e6, latencias.percentil(99) / 1e6, latencias.percentil(99.9) / 1e6,
+				latencias.getMaximo() / 1e6);
+	}
+
+	/**
+	 * Vacía las métricas
+	 */
+	public void reiniciar() {
+		llamadas.reset();
+		errores.reset();
+		filas.reset();
+		latencias.reiniciar();
+	}
+
+	/**
+	 * Representacion en forma de cadena de las métricas
+	 * @return Una cadena con las llamadas, los errores, las filas y las latencias principales
+	 */
+	@Override
+	public String toString() {
+		return getEstadisticas().toString();
+	}
+}
@@ -0,0 +1,144 @@
+package monitorizacion;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import persistencia.CacheIncidencias;
+import persistencia.ConexionBD;
+import persistencia.IncidenciasDAO;
+import persistencia.PoolConexiones;
+import persistencia.TrazaSQL;
+
+/**
+ * Publicación por JMX de las métricas de las operaciones, del pool de conexiones, de la
+ * caché de búsquedas y de las sentencias SQL trazadas.
+ * <p>
+ * Los valores se leen en el momento de consultarlos, así que publicar el monitor no añade
+ * trabajo a las operaciones. Mientras no hay pool (antes de la primera conexión o después
+ * de cerrarlo) sus valores son 0. Se puede ver con jconsole o VisualVM en
+ * {@value #NOMBRE}.
+ */
+public class MonitorIncidencias implements MonitorIncidenciasMXBean {
+	/**
+	 * Nombre con el que se publica el monitor
+	 */
+	public static final String NOMBRE = "incidencias:type=Monitor";
+
+	/**
+	 * Publica el monitor en el servidor de MBeans de la plataforma si no está ya publicado.
+	 * Si no se puede publicar la aplicación sigue funcionando sin él.
+	 */
+	public static synchronized void publicar() {
+		try {
+			MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+			ObjectName nombre = new ObjectName(NOMBRE);
+			if (!servidor.isRegistered(nombre)) {
+				servidor.registerMBean(new MonitorIncidencias(), nombre);
+			}
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public List<EstadisticasOperacion> getOperaciones() {
+		List<EstadisticasOperacion> estadisticas = new ArrayList<>();
+		for (MetricasOperacion operacion : Metricas.getOperaciones()) {
+			estadisticas.add(operacion.getEstadisticas());
+		}
+		return estadisticas;
+	}
+
+	@Override
+	public List<EstadisticasSentencia> getSentenciasSQL() {
+		return TrazaSQL.getSentencias();
+	}
+
+	@Override
+	public int getConexionesActivas() {
+		PoolConexiones pool = pool();
+		return pool == null ? 0 : pool.getConexionesActivas();
+	}
+
+	@Override
+	public int getConexionesLibres() {
+		PoolConexiones pool = pool();
+		return pool == null ? 0 : pool.getConexionesLibres();
+	}
+
+	@Override
+	public int getConexionesMaximas() {
+		PoolConexiones pool = pool();
+		return pool == null ? 0 : pool.getMaximo();
+	}
+
+	@Override
+	public double getEsperaMediaConexionMs() {
+		PoolConexiones pool = pool();
+		return pool == null ? 0 : pool.getEsperaMediaMs();
+	}
+
+	@Override
+	public double getEsperaMaximaConexionMs() {
+		PoolConexiones pool = pool();
+		return pool == null ? 0 : pool.getEsperaMaximaMs();
+	}
+
+	@Override
+	public long getTiemposAgotadosConexion() {
+		PoolConexiones pool = pool();
+		return pool == null ? 0 : pool.getTiemposAgotados();
+	}
+
+	@Override
+	public long getFugasConexion() {
+		PoolConexiones pool = pool();
+		return pool == null ? 0 : pool.getFugasDetectadas();
+	}
+
+	@Override
+	public double getReutilizacionSentencias() {
+		PoolConexiones pool = pool();
+		if (pool == null) {
+			return 0;
+		}
+		long reutilizadas = pool.getSentenciasReutilizadas();
+		long total = reutilizadas + pool.getSentenciasPreparadas();
+		return total == 0 ? 0 : (double) reutilizadas / total;
+	}
+
+	@Override
+	public int getTamanoCache() {
+		return cache().getTamano();
+	}
+
+	@Override
+	public double getAciertosCache() {
+		long aciertos = cache().getAciertos();
+		long total = aciertos + cache().getFallos();
+		return total == 0 ? 0 : (double) aciertos / total;
+	}
+
+	@Override
+	public void reiniciar() {
+		Metricas.reiniciar();
+		TrazaSQL.reiniciar();
+	}
+
+	/**
+	 * Pool de conexiones sin crearlo: consultar el monitor no debe abrir conexiones
+	 * @return El pool, o null si no existe
+	 */
+	private static PoolConexiones pool() {
+		return ConexionBD.getPoolSiExiste();
+	}
+
+	private static CacheIncidencias cache() {
+		return IncidenciasDAO.getCache();
+	}
+}
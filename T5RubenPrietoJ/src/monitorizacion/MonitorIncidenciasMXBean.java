@@ -0,0 +1,87 @@
+package monitorizacion;
+
+import java.util.List;
+
+/**
+ * Interfaz de gestión con las métricas de la aplicación, publicada por JMX como
+ * {@value MonitorIncidencias#NOMBRE}
+ */
+public interface MonitorIncidenciasMXBean {
+
+	/**
+	 * Getter de las estadísticas de cada operación medida
+	 * @return Estadísticas de las operaciones, ordenadas por nombre
+	 */
+	List<EstadisticasOperacion> getOperaciones();
+
+	/**
+	 * Getter de las estadísticas de cada sentencia SQL, vacías si la traza de sentencias no está activa
+	 * @return Estadísticas de las sentencias, de más a menos tiempo total
+	 */
+	List<EstadisticasSentencia> getSentenciasSQL();
+
+	/**
+	 * Getter del número de conexiones prestadas
+	 * @return Conexiones prestadas
+	 */
+	int getConexionesActivas();
+
+	/**
+	 * Getter del número de conexiones abiertas sin prestar
+	 * @return Conexiones libres
+	 */
+	int getConexionesLibres();
+
+	/**
+	 * Getter del número máximo de conexiones del pool
+	 * @return Máximo de conexiones
+	 */
+	int getConexionesMaximas();
+
+	/**
+	 * Getter del tiempo medio de espera para obtener una conexión
+	 * @return Espera media en milisegundos
+	 */
+	double getEsperaMediaConexionMs();
+
+	/**
+	 * Getter del tiempo máximo de espera para obtener una conexión
+	 * @return Espera máxima en milisegundos
+	 */
+	double getEsperaMaximaConexionMs();
+
+	/**
+	 * Getter del número de peticiones de conexión que agotaron el tiempo de espera
+	 * @return Tiempos de espera agotados
+	 */
+	long getTiemposAgotadosConexion();
+
+	/**
+	 * Getter del número de conexiones prestadas demasiado tiempo
+	 * @return Fugas detectadas
+	 */
+	long getFugasConexion();
+
+	/**
+	 * Getter de la proporción de sentencias preparadas que se reutilizan
+	 * @return Proporción entre 0 y 1
+	 */
+	double getReutilizacionSentencias();
+
+	/**
+	 * Getter del número de incidencias en la caché de búsquedas
+	 * @return Tamaño de la caché
+	 */
+	int getTamanoCache();
+
+	/**
+	 * Getter de la proporción de búsquedas que se resuelven en la caché
+	 * @return Proporción entre 0 y 1
+	 */
+	double getAciertosCache();
+
+	/**
+	 * Vacía las métricas de las operaciones y las estadísticas de las sentencias
+	 */
+	void reiniciar();
+}
@@ -0,0 +1,181 @@
+package persistencia;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import dominio.Estado;
+import dominio.Incidencias;
+import monitorizacion.Metricas;
+import monitorizacion.MetricasOperacion;
+
+/**
+ * Clase que proporciona la búsqueda por palabras en los textos de las incidencias.
+ * <p>
+ * La búsqueda usa los índices FULLTEXT de MySQL, creados por {@link Migraciones}, sobre la
+ * descripción de las tres tablas, la resolución de las resueltas y la causa de eliminación
+ * de las eliminadas, y ordena los resultados por relevancia. El texto buscado se pasa a minúsculas y sin tildes, y se
+ * quitan las palabras vacías del español (que la lista de MySQL, en inglés, no quita); cada
+ * palabra busca también las que empiezan por ella, así que "impresora" encuentra
+ * "impresoras". Con la colación utf8mb4_general_ci de las tablas las tildes no cuentan
+ * tampoco en lo guardado.
+ */
+public class BusquedaDAO {
+	/**
+	 * Nombre de los índices FULLTEXT de las tablas de incidencias
+	 */
+	static final String INDICE_TEXTO = "ft_texto";
+	/**
+	 * Longitud mínima de palabra que indexa InnoDB (innodb_ft_min_token_size)
+	 */
+	private static final int LONGITUD_MINIMA = 3;
+	private static final MetricasOperacion METRICAS_BUSCAR_TEXTO = Metricas.operacion("BusquedaDAO.buscarTexto");
+	private static final Set<String> PALABRAS_VACIAS = Set.of(
+			"al", "algo", "algun", "alguna", "alguno", "ante", "antes", "aqui", "asi", "aun", "bajo", "bien", "cada",
+			"como", "con", "cual", "cuando", "de", "del", "desde", "donde", "dos", "el", "ella", "ellas", "ellos", "en",
+			"entre", "era", "es", "esa", "ese", "eso", "esta", "estan", "estas", "este", "esto", "estos", "fue", "ha",
+			"hace", "hay", "la", "las", "le", "les", "lo", "los", "mas", "me", "mi", "mucho", "muy", "nada", "ni", "no",
+			"nos", "o", "otra", "otro", "para", "pero", "poco", "por", "porque", "que", "se", "sea", "segun", "ser",
+			"si", "sin", "sobre", "solo", "su", "sus", "tambien", "tan", "tiene", "todo", "todos", "tras", "tu", "un",
+			"una", "uno", "unos", "unas", "y", "ya", "yo");
+
+	/**
+	 * Busca incidencias por palabras en su descripción, resolución o causa de eliminación.
+	 *
+	 * @param con			La conexión a la base de datos
+	 * @param texto			Palabras a buscar
+	 * @param estado		Estado de las incidencias, o null para buscar en todos
+	 * @param pagina		Número de página, empezando en 0
+	 * @param tamanoPagina	Número de incidencias por página
+	 * @return Las incidencias de la página, de más a menos relevante; vacía si no hay palabras que buscar o si ocurre algún error
+	 */
+	public static List<Incidencias> buscarTexto(Connection con, String texto, Estado estado, int pagina, int tamanoPagina) {
+		try {
+			return buscar(con, texto, estado, pagina, tamanoPagina);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Busca incidencias por palabras dejando pasar los errores de la base de datos.
+	 *
+	 * @param con			La conexión a la base de datos
+	 * @param texto			Palabras a buscar
+	 * @param estado		Estado de las incidencias, o null para buscar en todos
+	 * @param pagina		Número de página, empezando en 0
+	 * @param tamanoPagina	Número de incidencias por página
+	 * @return Las incidencias de la página, de más a menos relevante; vacía si no hay palabras que buscar
+	 * @throws SQLException si falla el acceso a la base de datos
+	 */
+	public static List<Incidencias> buscar(Connection con, String texto, Estado estado, int pagina, int tamanoPagina)
+			throws SQLException {
+		String consulta = consultaBooleana(texto);
+		if (consulta.isEmpty()) {
+			return new ArrayList<>();
+		}
+		long inicio = System.nanoTime();
+		try {
+			// Las migraciones crean los índices FULLTEXT y dicen si el esquema usa la tabla única
+			Migraciones.asegurar(con);
+			boolean tablaUnica = Migraciones.usaTablaUnica(con);
+			// En long para que una página muy alta no desborde el LIMIT y el OFFSET
+			long hasta = ((long) pagina + 1) * tamanoPagina;
+			List<Object> parametros = new ArrayList<>();
+			StringBuilder sql = new StringBuilder();
+			for (Estado actual : Estado.values()) {
+				if (estado != null && estado != actual) {
+					continue;
+				}
+				if (sql.length() > 0) {
+					sql.append(" UNION ALL ");
+				}
+				// Cada tabla aporta como mucho las filas hasta el final de la página pedida
+				String columnas = columnasTexto(actual);
+				sql.append("(SELECT identificador, estado, puesto, descripcion, fechaRegistro, ")
+						.append(actual == Estado.Resuelta ? "fechaResolucion, resolucion, " : "CAST(NULL AS DATE) AS fechaResolucion, NULL AS resolucion, ")
+						.append(actual == Estado.Eliminada ? "fechaEliminacion, causaEliminacion, " : "CAST(NULL AS DATE) AS fechaEliminacion, NULL AS causaEliminacion, ")
+						.append("MATCH(").append(columnas).append(") AGAINST (? IN BOOLEAN MODE) AS relevancia FROM ");
+				parametros.add(consulta);
+				// Con la tabla única se consulta la tabla, que es la que tiene los índices FULLTEXT
+				if (tablaUnica) {
+					sql.append(IncidenciasDAO.TABLA_INCIDENCIAS).append(" WHERE estado = ? AND ");
+					parametros.add(actual.toString());
+				} else {
+					sql.append(IncidenciasDAO.tabla(actual)).append(" WHERE ");
+				}
+				sql.append("MATCH(").append(columnas).append(") AGAINST (? IN BOOLEAN MODE) ORDER BY relevancia DESC LIMIT ?)");
+				parametros.add(consulta);
+				parametros.add(hasta);
+			}
+			sql.append(" ORDER BY relevancia DESC, identificador LIMIT ? OFFSET ?");
+			parametros.add(tamanoPagina);
+			parametros.add((long) pagina * tamanoPagina);
+			List<Incidencias> resultado = EjecutorSQL.consultarLista(con, sql.toString(), new MapeadorIncidencias(), parametros.toArray());
+			METRICAS_BUSCAR_TEXTO.registrar(inicio, resultado.size());
+			return resultado;
+		} catch (SQLException | RuntimeException e) {
+			METRICAS_BUSCAR_TEXTO.error(inicio);
+			throw e;
+		}
+	}
+
+	/**
+	 * Convierte el texto buscado en una consulta FULLTEXT en modo booleano: las palabras
+	 * normalizadas, sin repetir, cada una con {@code *} para buscar también las que empiezan por ella.
+	 *
+	 * @param texto Texto buscado
+	 * @return La consulta, o una cadena vacía si no queda ninguna palabra
+	 */
+	static String consultaBooleana(String texto) {
+		StringBuilder consulta = new StringBuilder();
+		for (String palabra : palabras(texto)) {
+			if (consulta.length() > 0) {
+				consulta.append(' ');
+			}
+			consulta.append(palabra).append('*');
+		}
+		return consulta.toString();
+	}
+
+	/**
+	 * Separa un texto en palabras en minúsculas y sin tildes, quitando las palabras vacías y las
+	 * demasiado cortas para el índice
+	 *
+	 * @param texto Texto a separar
+	 * @return Las palabras, sin repetir y en el orden en que aparecen
+	 */
+	static Set<String> palabras(String texto) {
+		Set<String> palabras = new LinkedHashSet<>();
+		if (texto == null) {
+			return palabras;
+		}
+		String normalizado = Normalizer.normalize(texto.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+				.replaceAll("\\p{M}+", "");
+		for (String palabra : normalizado.split("[^\\p{L}\\p{N}]+")) {
+			if (palabra.length() >= LONGITUD_MINIMA && !PALABRAS_VACIAS.contains(palabra)) {
+				palabras.add(palabra);
+			}
+		}
+		return palabras;
+	}
+
+	/**
+	 * Columnas del índice FULLTEXT de la tabla de un estado
+	 * @param estado Estado de las incidencias
+	 * @return Las columnas separadas por comas
+	 */
+	static String columnasTexto(Estado estado) {
+		return switch (estado) {
+			case Pendiente -> "descripcion";
+			case Resuelta -> "descripcion, resolucion";
+			case Eliminada -> "descripcion, causaEliminacion";
+		};
+	}
+}
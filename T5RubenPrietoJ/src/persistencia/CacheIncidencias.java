@@ -0,0 +1,196 @@
+package persistencia;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import dominio.Incidencias;
+
+/**
+ * Caché acotada de incidencias por identificador delante de la base de datos.
+ * <p>
+ * Expulsa la entrada usada hace más tiempo (LRU) cuando se llena y descarta las entradas
+ * que superan su tiempo de vida, de modo que los cambios hechos por otras instancias de
+ * la aplicación se ven como mucho tras ese tiempo. Las operaciones del DAO que modifican
+ * una incidencia la invalidan en la caché. Como {@link Incidencias} es mutable, se guarda
+ * una copia de cada incidencia cargada y se entrega otra copia en cada acierto, para que
+ * quien la modifique no cambie lo que ven los demás.
+ */
+public class CacheIncidencias {
+	/**
+	 * Entradas de la caché en orden de acceso, la menos usada primero
+	 */
+	private final LinkedHashMap<String, Entrada> entradas;
+	private final long vidaNanos;
+	/**
+	 * Se incrementa en cada invalidación; una carga solo se guarda si no ha cambiado mientras se leía
+	 */
+	private final AtomicLong generacion = new AtomicLong();
+	private final LongAdder aciertos = new LongAdder();
+	private final LongAdder fallos = new LongAdder();
+	private final LongAdder expulsiones = new LongAdder();
+
+	/**
+	 * Constructor de la caché
+	 * @param capacidad	Número máximo de incidencias guardadas
+	 * @param vidaMs	Tiempo de vida de cada entrada en milisegundos
+	 */
+	public CacheIncidencias(int capacidad, long vidaMs) {
+		this.vidaNanos = vidaMs * 1_000_000L;
+		this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entrada> mayor) {
+				boolean expulsar = size() > capacidad;
+				if (expulsar) {
+					expulsiones.increment();
+				}
+				return expulsar;
+			}
+		};
+	}
+
+	/**
+	 * Obtiene una incidencia de la caché o, si no está o ha caducado, la carga con la
+	 * función indicada y la guarda. Los resultados null no se guardan.
+	 *
+	 * @param identificador	Identificador de la incidencia
+	 * @param cargar		Función que lee la incidencia de la base de datos
+	 * @return La incidencia, o null si no existe
+	 * @throws SQLException si falla la carga
+	 */
+	public Incidencias obtener(String identificador, Carga cargar) throws SQLException {
+		long ahora = System.nanoTime();
+		synchronized (entradas) {
+			Entrada entrada = entradas.get(identificador);
+			if (entrada != null) {
+				if (ahora - entrada.creada < vidaNanos) {
+					aciertos.increment();
+					return copiar(entrada.incidencia);
+				}
+				entradas.remove(identificador);
+			}
+		}
+		fallos.increment();
+		long generacionCarga = generacion.get();
+		Incidencias incidencia = cargar.cargar(identificador);
+		if (incidencia != null) {
+			synchronized (entradas) {
+				// Si se ha invalidado algo durante la carga puede que lo leído ya no sea válido
+				if (generacion.get() == generacionCarga) {
+					entradas.put(identificador, new Entrada(copiar(incidencia), ahora));
+				}
+			}
+		}
+		return incidencia;
+	}
+
+	/**
+	 * Quita una incidencia de la caché
+	 * @param identificador Identificador de la incidencia
+	 */
+	public void invalidar(String identificador) {
+		synchronized (entradas) {
+			generacion.incrementAndGet();
+			entradas.remove(identificador);
+		}
+	}
+
+	/**
+	 * Vacía la caché
+	 */
+	public void vaciar() {
+		synchronized (entradas) {
+			generacion.incrementAndGet();
+			entradas.clear();
+		}
+	}
+
+	/**
+	 * Getter del número de entradas guardadas
+	 * @return Número de entradas
+	 */
+	public int getTamano() {
+		synchronized (entradas) {
+			return entradas.size();
+		}
+	}
+
+	/**
+	 * Getter del número de búsquedas resueltas desde la caché
+	 * @return Aciertos
+	 */
+	public long getAciertos() {
+		return aciertos.sum();
+	}
+
+	/**
+	 * Getter del número de búsquedas que han tenido que ir a la base de datos
+	 * @return Fallos
+	 */
+	public long getFallos() {
+		return fallos.sum();
+	}
+
+	/**
+	 * Getter del número de entradas expulsadas por falta de espacio
+	 * @return Expulsiones
+	 */
+	public long getExpulsiones() {
+		return expulsiones.sum();
+	}
+
+	/**
+	 * Representacion en forma de cadena de las métricas de la caché
+	 * @return Una cadena con las métricas de la caché
+	 */
+	@Override
+	public String toString() {
+		return "Cache[tamano=" + getTamano() + ", aciertos=" + getAciertos() + ", fallos=" + getFallos()
+				+ ", expulsiones=" + getExpulsiones() + "]";
+	}
+
+	/**
+	 * Copia de una incidencia con todos sus datos
+	 * @param incidencia	Incidencia a copiar
+	 * @return Una incidencia nueva con los mismos datos
+	 */
+	private static Incidencias copiar(Incidencias incidencia) {
+		Incidencias copia = new Incidencias(incidencia.getIdentificador(), incidencia.getEstado(),
+				incidencia.getPuesto(), incidencia.getDescripcion(), incidencia.getFechaRegistro(),
+				incidencia.getFechaResolucion(), incidencia.getResolucion(), incidencia.getFechaEliminacion(),
+				incidencia.getCausaEliminacion());
+		copia.setFechaIncidencia(incidencia.getFechaIncidencia());
+		return copia;
+	}
+
+	/**
+	 * Lectura de una incidencia de la base de datos
+	 */
+	@FunctionalInterface
+	public interface Carga {
+		/**
+		 * Lee una incidencia
+		 * @param identificador	Identificador de la incidencia
+		 * @return La incidencia, o null si no existe
+		 * @throws SQLException si falla la lectura
+		 */
+		Incidencias cargar(String identificador) throws SQLException;
+	}
+
+	/**
+	 * Incidencia guardada con el instante en que se cargó
+	 */
+	private static final class Entrada {
+		private final Incidencias incidencia;
+		private final long creada;
+
+		private Entrada(Incidencias incidencia, long creada) {
+			this.incidencia = incidencia;
+			this.creada = creada;
+		}
+	}
+}
@@ -0,0 +1,202 @@
+package persistencia;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché LRU acotada de sentencias preparadas de una conexión física del pool.
+ * <p>
+ * Cada sentencia se prepara una vez por conexión (en el servidor si la URL lleva
+ * {@code useServerPrepStmts=true}) y se reutiliza en los siguientes préstamos. Quien la
+ * usa recibe un proxy cuyo {@code close()} limpia los parámetros y la deja libre en lugar
+ * de cerrarla. Si se pide una sentencia que ya está en uso se prepara otra aparte, que sí
+ * se cierra al terminar. Las sentencias expulsadas de la caché se cierran.
+ */
+final class CacheSentencias {
+	private final Connection real;
+	private final LinkedHashMap<String, SentenciaCacheada> sentencias;
+	private final LongAdder reutilizadas;
+	private final LongAdder preparadas;
+
+	/**
+	 * Constructor de la caché de sentencias
+	 * @param real			Conexión física a la que pertenecen las sentencias
+	 * @param capacidad		Número máximo de sentencias guardadas
+	 * @param reutilizadas	Contador de sentencias servidas desde la caché
+	 * @param preparadas	Contador de sentencias preparadas en la conexión física
+	 */
+	CacheSentencias(Connection real, int capacidad, LongAdder reutilizadas, LongAdder preparadas) {
+		this.real = real;
+		this.reutilizadas = reutilizadas;
+		this.preparadas = preparadas;
+		this.sentencias = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, SentenciaCacheada> mayor) {
+				if (size() <= capacidad) {
+					return false;
+				}
+				SentenciaCacheada expulsada = mayor.getValue();
+				expulsada.expulsada = true;
+				if (!expulsada.enUso) {
+					expulsada.cerrar();
+				}
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Obtiene una sentencia preparada para el SQL indicado
+	 * @param conexion				Conexión prestada que devuelve {@code getConnection()} de la sentencia
+	 * @param sql					Sentencia SQL
+	 * @param autoGeneratedKeys		Valor de {@code Statement.RETURN_GENERATED_KEYS} o null si no se indica
+	 * @return	La sentencia preparada
+	 * @throws SQLException si falla la preparación
+	 */
+	synchronized PreparedStatement preparar(Connection conexion, String sql, Integer autoGeneratedKeys) throws SQLException {
+		String clave = autoGeneratedKeys == null ? sql : autoGeneratedKeys + "|" + sql;
+		SentenciaCacheada cacheada = sentencias.get(clave);
+		if (cacheada != null && !cacheada.enUso) {
+			reutilizadas.increment();
+		} else if (cacheada == null) {
+			cacheada = new SentenciaCacheada(prepararReal(sql, autoGeneratedKeys));
+			sentencias.put(clave, cacheada);
+		} else {
+			// Ya está en uso (por ejemplo, un recorrido anidado): se usa una sentencia aparte
+			cacheada = new SentenciaCacheada(prepararReal(sql, autoGeneratedKeys));
+			cacheada.expulsada = true;
+		}
+		cacheada.enUso = true;
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new UsoSentencia(cacheada, conexion));
+	}
+
+	private PreparedStatement prepararReal(String sql, Integer autoGeneratedKeys) throws SQLException {
+		preparadas.increment();
+		return autoGeneratedKeys == null ? real.prepareStatement(sql) : real.prepareStatement(sql, autoGeneratedKeys);
+	}
+
+	/**
+	 * Deja libres las sentencias que el usuario de la conexión no ha cerrado
+	 */
+	synchronized void liberarTodas() {
+		for (SentenciaCacheada cacheada : sentencias.values()) {
+			if (cacheada.enUso) {
+				cacheada.liberar();
+			}
+		}
+	}
+
+	/**
+	 * Cierra todas las sentencias guardadas
+	 */
+	synchronized void cerrarTodas() {
+		List<SentenciaCacheada> todas = new ArrayList<>(sentencias.values());
+		sentencias.clear();
+		todas.forEach(SentenciaCacheada::cerrar);
+	}
+
+	/**
+	 * Sentencia física guardada en la caché
+	 */
+	private final class SentenciaCacheada {
+		private final PreparedStatement sentencia;
+		private boolean enUso;
+		private boolean expulsada;
+
+		private SentenciaCacheada(PreparedStatement sentencia) {
+			this.sentencia = sentencia;
+		}
+
+		/**
+		 * Deja la sentencia lista para el siguiente uso, o la cierra si ya no está en la caché
+		 */
+		private void liberar() {
+			synchronized (CacheSentencias.this) {
+				enUso = false;
+				if (expulsada) {
+					cerrar();
+					return;
+				}
+				try {
+					sentencia.clearParameters();
+					sentencia.clearBatch();
+					sentencia.setFetchSize(0);
+				} catch (SQLException e) {
+					// Una sentencia que no se puede limpiar no se vuelve a usar
+					sentencias.values().remove(this);
+					cerrar();
+				}
+			}
+		}
+
+		private void cerrar() {
+			try {
+				sentencia.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Manejador del proxy de un uso de una sentencia cacheada
+	 */
+	private static final class UsoSentencia implements InvocationHandler {
+		private final SentenciaCacheada cacheada;
+		private final Connection conexion;
+		private boolean cerrada;
+
+		private UsoSentencia(SentenciaCacheada cacheada, Connection conexion) {
+			this.cacheada = cacheada;
+			this.conexion = conexion;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+			switch (metodo.getName()) {
+				case "close" -> {
+					if (!cerrada) {
+						cerrada = true;
+						cacheada.liberar();
+					}
+					return null;
+				}
+				case "isClosed" -> {
+					return cerrada;
+				}
+				case "getConnection" -> {
+					return conexion;
+				}
+				case "equals" -> {
+					return proxy == args[0];
+				}
+				case "hashCode" -> {
+					return System.identityHashCode(proxy);
+				}
+				default -> {
+					if (cerrada) {
+						throw new SQLException("La sentencia ya está cerrada");
+					}
+					try {
+						return metodo.invoke(cacheada.sentencia, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				}
+			}
+		}
+	}
+}
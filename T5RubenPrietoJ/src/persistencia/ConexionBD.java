@@ -1,20 +1,69 @@
 package persistencia;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Clase que gestiona la conexión a la base de datos.
+ * <p>
+ * Las conexiones se prestan desde un {@link PoolConexiones} compartido, de modo que
+ * cerrarlas las devuelve al pool en lugar de cerrar la conexión física. Los datos de
+ * conexión y el tamaño del pool se pueden cambiar con propiedades del sistema
+ * ({@code -Dincidencias.pool.max=20}, por ejemplo). Con {@code -Dincidencias.sql.traza=true}
+ * las conexiones se entregan envueltas por {@link TrazaSQL}, que mide las sentencias.
  */
 public class ConexionBD {
 	// Datos de conexión
-	private static final String USUARIO="ruben";
-	private static final String PASSWORD="12345";
-	private static final String MAQUINA="localhost";
+	private static final String USUARIO=System.getProperty("incidencias.bd.usuario", "ruben");
+	private static final String PASSWORD=System.getProperty("incidencias.bd.password", "12345");
+	private static final String MAQUINA=System.getProperty("incidencias.bd.maquina", "localhost");
 	private static final String BD="bd_incidencias";
-	private static final String URL="jdbc:mysql://"+MAQUINA+":3306/"+BD;
-	
+	private static final String URL=System.getProperty("incidencias.bd.url", "jdbc:mysql://"+MAQUINA+":3306/"+BD
+			+ "?rewriteBatchedStatements=true&useCursorFetch=true&useServerPrepStmts=true");
+
+	// Configuración del pool
+	private static final int POOL_MIN=Integer.getInteger("incidencias.pool.min", 2);
+	private static final int POOL_MAX=Integer.getInteger("incidencias.pool.max", 10);
+	private static final long POOL_ESPERA_MS=Long.getLong("incidencias.pool.esperaMs", 30_000L);
+	private static final long POOL_INACTIVIDAD_MS=Long.getLong("incidencias.pool.inactividadMs", 600_000L);
+	private static final long POOL_FUGA_MS=Long.getLong("incidencias.pool.fugaMs", 60_000L);
+	private static final int POOL_SENTENCIAS=Integer.getInteger("incidencias.pool.sentencias", 64);
+
+	/**
+	 * Pool compartido, creado la primera vez que se pide una conexión
+	 */
+	private static volatile PoolConexiones pool;
+
+	/**
+	 * Obtiene el pool de conexiones compartido, creándolo si aún no existe.
+	 *
+	 * @return El pool de conexiones
+	 */
+	public static PoolConexiones getPool() {
+		PoolConexiones actual = pool;
+		if (actual == null) {
+			synchronized (ConexionBD.class) {
+				actual = pool;
+				if (actual == null) {
+					actual = new PoolConexiones(URL, USUARIO, PASSWORD, POOL_MIN, POOL_MAX,
+							POOL_ESPERA_MS, POOL_INACTIVIDAD_MS, POOL_FUGA_MS, POOL_SENTENCIAS);
+					pool = actual;
+				}
+			}
+		}
+		return actual;
+	}
+
+	/**
+	 * Obtiene el pool de conexiones compartido sin crearlo, para consultarlo sin abrir
+	 * conexiones, por ejemplo después de cerrarlo.
+	 *
+	 * @return El pool de conexiones, o null si no existe
+	 */
+	public static PoolConexiones getPoolSiExiste() {
+		return pool;
+	}
+
 	/**
      * Establece una conexión con la base de datos.
      *
@@ -22,7 +71,7 @@ public class ConexionBD {
      * @throws SQLException si ocurre un error al conectar
      */
 	public static Connection conectar() throws SQLException {
-        return DriverManager.getConnection(URL, USUARIO, PASSWORD);
+        return prestar();
     }
 	 /**
      * Cierra la conexión a la base de datos.
@@ -47,8 +96,8 @@ public class ConexionBD {
     public static Connection obtenerConexion() throws SQLException {
         Connection conexion = null;
         try {
-            // Establecer la conexión
-            conexion = DriverManager.getConnection(URL, USUARIO, PASSWORD);
+            // Obtener la conexión del pool
+            conexion = prestar();
         } catch (SQLException e) {
             // Manejar la excepción
             System.err.println("Error al conectar a la base de datos: " + e.getMessage());
@@ -56,4 +105,25 @@ public class ConexionBD {
         }
         return conexion;
     }
+    /**
+     * Presta una conexión del pool, envuelta por {@link TrazaSQL} si la traza está activa.
+     *
+     * @return La conexión prestada
+     * @throws SQLException si ocurre un error al conectar
+     */
+    private static Connection prestar() throws SQLException {
+        Connection conexion = getPool().obtenerConexion();
+        return TrazaSQL.ACTIVA ? TrazaSQL.envolver(conexion) : conexion;
+    }
+    /**
+     * Cierra el pool de conexiones y todas sus conexiones libres.
+     */
+    public static void cerrarPool() {
+        synchronized (ConexionBD.class) {
+            if (pool != null) {
+                pool.cerrar();
+                pool = null;
+            }
+        }
+    }
 }
@@ -0,0 +1,115 @@
+package persistencia;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Capa de ejecución de sentencias que usa el DAO.
+ * <p>
+ * Prepara la sentencia, asigna los parámetros por posición y cierra siempre la sentencia
+ * y el ResultSet al terminar, aunque falle la ejecución. Con las conexiones del pool el
+ * cierre de la sentencia la devuelve a la caché de sentencias de la conexión, así que las
+ * consultas habituales solo se preparan una vez por conexión.
+ */
+final class EjecutorSQL {
+
+	private EjecutorSQL() {
+	}
+
+	/**
+	 * Ejecuta una sentencia INSERT, UPDATE o DELETE
+	 * @param con			La conexión a la base de datos
+	 * @param sql			Sentencia SQL
+	 * @param parametros	Parámetros de la sentencia, en orden
+	 * @return	El número de filas afectadas
+	 * @throws SQLException si falla la ejecución
+	 */
+	static int actualizar(Connection con, String sql, Object... parametros) throws SQLException {
+		try (PreparedStatement sentencia = con.prepareStatement(sql)) {
+			asignar(sentencia, parametros);
+			return sentencia.executeUpdate();
+		}
+	}
+
+	/**
+	 * Ejecuta una consulta y convierte la primera fila
+	 * @param <T>			Tipo del objeto obtenido de la fila
+	 * @param con			La conexión a la base de datos
+	 * @param sql			Consulta SQL
+	 * @param mapeador		Mapeador de la fila
+	 * @param parametros	Parámetros de la consulta, en orden
+	 * @return	El objeto de la primera fila, o null si la consulta no devuelve filas
+	 * @throws SQLException si falla la ejecución
+	 */
+	static <T> T consultarUno(Connection con, String sql, MapeadorFila<T> mapeador, Object... parametros) throws SQLException {
+		try (PreparedStatement sentencia = con.prepareStatement(sql)) {
+			asignar(sentencia, parametros);
+			try (ResultSet rs = sentencia.executeQuery()) {
+				return rs.next() ? mapeador.mapear(rs) : null;
+			}
+		}
+	}
+
+	/**
+	 * Ejecuta una consulta y convierte todas sus filas
+	 * @param <T>			Tipo del objeto obtenido de cada fila
+	 * @param con			La conexión a la base de datos
+	 * @param sql			Consulta SQL
+	 * @param mapeador		Mapeador de las filas
+	 * @param parametros	Parámetros de la consulta, en orden
+	 * @return	Lista con un objeto por fila
+	 * @throws SQLException si falla la ejecución
+	 */
+	static <T> List<T> consultarLista(Connection con, String sql, MapeadorFila<T> mapeador, Object... parametros) throws SQLException {
+		List<T> resultado = new ArrayList<>();
+		recorrer(con, sql, 0, mapeador, resultado::add, parametros);
+		return resultado;
+	}
+
+	/**
+	 * Ejecuta una consulta y entrega cada fila convertida a la acción según se lee
+	 * @param <T>			Tipo del objeto obtenido de cada fila
+	 * @param con			La conexión a la base de datos
+	 * @param sql			Consulta SQL
+	 * @param tamanoFetch	Filas que trae el driver en cada viaje, o 0 para el valor por defecto
+	 * @param mapeador		Mapeador de las filas
+	 * @param accion		Acción que recibe cada objeto
+	 * @param parametros	Parámetros de la consulta, en orden
+	 * @return	El número de filas recorridas
+	 * @throws SQLException si falla la ejecución
+	 */
+	static <T> int recorrer(Connection con, String sql, int tamanoFetch, MapeadorFila<T> mapeador,
+			Consumer<? super T> accion, Object... parametros) throws SQLException {
+		try (PreparedStatement sentencia = con.prepareStatement(sql)) {
+			if (tamanoFetch > 0) {
+				sentencia.setFetchSize(tamanoFetch);
+			}
+			asignar(sentencia, parametros);
+			int filas = 0;
+			try (ResultSet rs = sentencia.executeQuery()) {
+				while (rs.next()) {
+					accion.accept(mapeador.mapear(rs));
+					filas++;
+				}
+			}
+			return filas;
+		}
+	}
+
+	/**
+	 * Asigna los parámetros de una sentencia por posición
+	 * @param sentencia		Sentencia preparada
+	 * @param parametros	Parámetros, en orden
+	 * @throws SQLException si falla la asignación
+	 */
+	private static void asignar(PreparedStatement sentencia, Object[] parametros) throws SQLException {
+		for (int i = 0; i < parametros.length; i++) {
+			sentencia.setObject(i + 1, parametros[i]);
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package persistencia;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import dominio.Estado;
+import dominio.TiemposResolucion;
+
+/**
+ * Clase que proporciona las estadísticas de las incidencias.
+ * <p>
+ * Todas las cuentas se hacen en la base de datos con GROUP BY, así que cada estadística es
+ * una consulta pequeña que devuelve unas pocas filas ya agregadas en lugar de traer todas
+ * las incidencias para contarlas en Java.
+ */
+public class EstadisticasDAO {
+
+	/**
+	 * Cuenta las incidencias de cada estado en una sola consulta.
+	 *
+	 * @param con La conexión a la base de datos
+	 * @return El número de incidencias de cada estado; vacío si ocurre algún error
+	 */
+	public static Map<Estado, Integer> contarPorEstado(Connection con) {
+		try {
+			return cuentasPorEstado(con);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return new EnumMap<>(Estado.class);
+		}
+	}
+
+	/**
+	 * Cuenta las incidencias de cada estado dejando pasar los errores de la base de datos.
+	 *
+	 * @param con La conexión a la base de datos
+	 * @return El número de incidencias de cada estado
+	 * @throws SQLException si falla el acceso a la base de datos
+	 */
+	public static Map<Estado, Integer> cuentasPorEstado(Connection con) throws SQLException {
+		StringBuilder sql = new StringBuilder();
+		for (Estado estado : Estado.values()) {
+			if (sql.length() > 0) {
+				sql.append(" UNION ALL ");
+			}
+			sql.append("SELECT ").append(estado.ordinal()).append(", COUNT(*) FROM ").append(IncidenciasDAO.tabla(estado));
+		}
+		Map<Estado, Integer> cuentas = new EnumMap<>(Estado.class);
+		for (int[] fila : EjecutorSQL.consultarLista(con, sql.toString(), rs -> new int[] { rs.getInt(1), rs.getInt(2) })) {
+			cuentas.put(Estado.values()[fila[0]], fila[1]);
+		}
+		return cuentas;
+	}
+
+	/**
+	 * Cuenta las incidencias de un estado por puesto, de más a menos incidencias.
+	 *
+	 * @param con		La conexión a la base de datos
+	 * @param estado	Estado de las incidencias
+	 * @param limite	Número máximo de puestos
+	 * @return El número de incidencias de cada puesto; vacío si ocurre algún error
+	 */
+	public static Map<Integer, Integer> contarPorPuesto(Connection con, Estado estado, int limite) {
+		try {
+			return cuentasPorPuesto(con, estado, limite);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return new LinkedHashMap<>();
+		}
+	}
+
+	/**
+	 * Cuenta las incidencias de un estado por puesto dejando pasar los errores de la base de datos.
+	 *
+	 * @param con		La conexión a la base de datos
+	 * @param estado	Estado de las incidencias
+	 * @param limite	Número máximo de puestos
+	 * @return El número de incidencias de cada puesto, de más a menos incidencias
+	 * @throws SQLException si falla el acceso a la base de datos
+	 */
+	public static Map<Integer, Integer> cuentasPorPuesto(Connection con, Estado estado, int limite) throws SQLException {
+		String sql = "SELECT puesto, COUNT(*) AS total FROM " + IncidenciasDAO.tabla(estado)
+				+ " GROUP BY puesto ORDER BY total DESC, puesto LIMIT ?";
+		Map<Integer, Integer> cuentas = new LinkedHashMap<>();
+		for (int[] fila : EjecutorSQL.consultarLista(con, sql, rs -> new int[] { rs.getInt(1), rs.getInt(2) }, limite)) {
+			cuentas.put(fila[0], fila[1]);
+		}
+		return cuentas;
+	}
+
+	/**
+	 * Cuenta por día las incidencias que pasaron a un estado en un intervalo de fechas. El
+	 * día es el de registro para las pendientes, el de resolución para las resueltas y el de
+	 * eliminación para las eliminadas.
+	 *
+	 * @param con		La conexión a la base de datos
+	 * @param estado	Estado de las incidencias
+	 * @param desde		Primer día incluido, o null para no poner límite
+	 * @param hasta		Último día incluido, o null para no poner límite
+	 * @return El número de incidencias de cada día, ordenado por día; vacío si ocurre algún error
+	 */
+	public static Map<LocalDate, Integer> contarPorDia(Connection con, Estado estado, LocalDate desde, LocalDate hasta) {
+		try {
+			return cuentasPorDia(con, estado, desde, hasta);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return new LinkedHashMap<>();
+		}
+	}
+
+	/**
+	 * Cuenta por día las incidencias que pasaron a un estado dejando pasar los errores de la base de datos.
+	 *
+	 * @param con		La conexión a la base de datos
+	 * @param estado	Estado de las incidencias
+	 * @param desde		Primer día incluido, o null para no poner límite
+	 * @param hasta		Último día incluido, o null para no poner límite
+	 * @return El número de incidencias de cada día, ordenado por día
+	 * @throws SQLException si falla el acceso a la base de datos
+	 */
+	public static Map<LocalDate, Integer> cuentasPorDia(Connection con, Estado estado, LocalDate desde, LocalDate hasta)
+			throws SQLException {
+		String columna = IncidenciasDAO.columnaFecha(estado);
+		List<Object> parametros = new ArrayList<>(2);
+		String sql = "SELECT " + columna + ", COUNT(*) FROM " + IncidenciasDAO.tabla(estado)
+				+ IncidenciasDAO.filtroFechas(columna, desde, hasta, parametros) + " GROUP BY " + columna + " ORDER BY " + columna;
+		Map<LocalDate, Integer> cuentas = new LinkedHashMap<>();
+		for (Object[] fila : EjecutorSQL.consultarLista(con, sql,
+				rs -> new Object[] { rs.getDate(1).toLocalDate(), rs.getInt(2) }, parametros.toArray())) {
+			cuentas.put((LocalDate) fila[0], (Integer) fila[1]);
+		}
+		return cuentas;
+	}
+
+	/**
+	 * Obtiene la distribución de los días de resolución de las incidencias resueltas en un
+	 * intervalo. La consulta agrupa por número de días, así que devuelve tantas filas como
+	 * números de días distintos haya, y con eso se calculan la media y los percentiles.
+	 *
+	 * @param con	La conexión a la base de datos
+	 * @param desde	Primer día de resolución incluido, o null para no poner límite
+	 * @param hasta	Último día de resolución incluido, o null para no poner límite
+	 * @return Los tiempos de resolución, o null si ocurre algún error
+	 */
+	public static TiemposResolucion getTiemposResolucion(Connection con, LocalDate desde, LocalDate hasta) {
+		try {
+			return tiemposResolucion(con, desde, hasta);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Obtiene la distribución de los días de resolución dejando pasar los errores de la base de datos.
+	 *
+	 * @param con	La conexión a la base de datos
+	 * @param desde	Primer día de resolución incluido, o null para no poner límite
+	 * @param hasta	Último día de resolución incluido, o null para no poner límite
+	 * @return Los tiempos de resolución
+	 * @throws SQLException si falla el acceso a la base de datos
+	 */
+	public static TiemposResolucion tiemposResolucion(Connection con, LocalDate desde, LocalDate hasta) throws SQLException {
+		List<Object> parametros = new ArrayList<>(2);
+		String sql = "SELECT DATEDIFF(fechaResolucion, fechaRegistro) AS dias, COUNT(*) FROM incidencias_resueltas"
+				+ IncidenciasDAO.filtroFechas("fechaResolucion", desde, hasta, parametros) + " GROUP BY dias ORDER BY dias";
+		List<long[]> filas = EjecutorSQL.consultarLista(con, sql, rs -> new long[] { rs.getLong(1), rs.getLong(2) },
+				parametros.toArray());
+		int[] dias = new int[filas.size()];
+		long[] cuentas = new long[filas.size()];
+		for (int i = 0; i < dias.length; i++) {
+			dias[i] = (int) filas.get(i)[0];
+			cuentas[i] = filas.get(i)[1];
+		}
+		return new TiemposResolucion(dias, cuentas);
+	}
+
+	/**
+	 * Obtiene las causas de eliminación más frecuentes.
+	 *
+	 * @param con		La conexión a la base de datos
+	 * @param limite	Número máximo de causas
+	 * @return El número de incidencias eliminadas por cada causa, de más a menos; vacío si ocurre algún error
+	 */
+	public static Map<String, Integer> getCausasEliminacion(Connection con, int limite) {
+		try {
+			return causasEliminacion(con, limite);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			return new LinkedHashMap<>();
+		}
+	}
+
+	/**
+	 * Obtiene las causas de eliminación más frecuentes dejando pasar los errores de la base de datos.
+	 *
+	 * @param con		La conexión a la base de datos
+	 * @param limite	Número máximo de causas
+	 * @return El número de incidencias eliminadas por cada causa, de más a menos
+	 * @throws SQLException si falla el acceso a la base de datos
+	 */
+	public static Map<String, Integer> causasEliminacion(Connection con, int limite) throws SQLException {
+		String sql = "SELECT causaEliminacion, COUNT(*) AS total FROM incidencias_eliminadas"
+				+ " GROUP BY causaEliminacion ORDER BY total DESC LIMIT ?";
+		Map<String, Integer> causas = new LinkedHashMap<>();
+		for (Object[] fila : EjecutorSQL.consultarLista(con, sql, rs -> new Object[] { rs.getString(1), rs.getInt(2) }, limite)) {
+			causas.put((String) fila[0], (Integer) fila[1]);
+		}
+		return causas;
+	}
+}
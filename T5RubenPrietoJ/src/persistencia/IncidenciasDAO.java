@@ -1,21 +1,97 @@
 package persistencia;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
+import dominio.DatosIncidencia;
 import dominio.Estado;
 import dominio.Incidencias;
+import monitorizacion.EventoDAO;
+import monitorizacion.Metricas;
+import monitorizacion.MetricasOperacion;
 /**
  * Clase que proporciona los métodos para la persistencia de incidencias
  */
 public class IncidenciasDAO {
 	/**
+	 * Tabla con el último número de incidencia asignado cada día
+	 */
+	static final String SQL_CREAR_SECUENCIA = "CREATE TABLE IF NOT EXISTS secuencia_incidencias ("
+			+ "dia DATE NOT NULL PRIMARY KEY, ultimo INT NOT NULL) ENGINE=InnoDB";
+	/**
+	 * Carga en la secuencia el mayor número usado cada día en las incidencias ya registradas
+	 */
+	static final String SQL_INICIALIZAR_SECUENCIA = "INSERT INTO secuencia_incidencias (dia, ultimo) "
+			+ "SELECT STR_TO_DATE(SUBSTRING_INDEX(identificador, '-', 1), '%d/%m/%Y'), "
+			+ "MAX(CAST(SUBSTRING_INDEX(identificador, '-', -1) AS UNSIGNED)) FROM ("
+			+ "SELECT identificador FROM incidencias_pendientes UNION ALL "
+			+ "SELECT identificador FROM incidencias_resueltas UNION ALL "
+			+ "SELECT identificador FROM incidencias_eliminadas) t "
+			+ "WHERE identificador LIKE '__/__/____-__:__-%' "
+			+ "GROUP BY 1 ON DUPLICATE KEY UPDATE ultimo = GREATEST(ultimo, VALUES(ultimo))";
+	/**
+	 * Incrementa atómicamente la secuencia del día, creando la fila si es el primer registro del día
+	 */
+	private static final String SQL_RESERVAR_SECUENCIA = "INSERT INTO secuencia_incidencias (dia, ultimo) VALUES (?, LAST_INSERT_ID(?)) "
+			+ "ON DUPLICATE KEY UPDATE ultimo = LAST_INSERT_ID(ultimo + ?)";
+	/**
+	 * Número de filas por lote en los registros masivos
+	 */
+	private static final int TAMANO_LOTE = Integer.getInteger("incidencias.lote.tamano", 500);
+	/**
+	 * Número de filas que trae el driver en cada viaje al recorrer tablas completas
+	 */
+	private static final int TAMANO_FETCH = Integer.getInteger("incidencias.fetch.tamano", 500);
+	/**
+	 * Inserción de una incidencia pendiente
+	 */
+	private static final String SQL_INSERTAR_PENDIENTE = "INSERT INTO incidencias_pendientes (identificador, estado, puesto, descripcion, fechaRegistro) VALUES (?, ?, ?, ?, ?)";
+	/**
+	 * Caché de incidencias pendientes consultadas por identificador
+	 */
+	private static final CacheIncidencias CACHE = new CacheIncidencias(
+			Integer.getInteger("incidencias.cache.capacidad", 1000), Long.getLong("incidencias.cache.vidaMs", 30_000L));
+	/**
+	 * Tabla con todas las incidencias en el modo de tabla única: las tres tablas de antes son
+	 * vistas sobre ella, así que las transiciones de estado son un único UPDATE. El modo lo
+	 * indica el esquema, ver {@link Migraciones#usaTablaUnica(Connection)}
+	 */
+	static final String TABLA_INCIDENCIAS = "incidencias";
+	/**
+	 * Procedimientos de las transiciones entre tablas, creados por la migración 8
+	 */
+	static final String PROCEDIMIENTO_RESOLVER = "resolver_incidencia";
+	static final String PROCEDIMIENTO_ELIMINAR = "eliminar_incidencia";
+	static final String PROCEDIMIENTO_DEVOLVER = "devolver_incidencia";
+	// Métricas de cada operación, publicadas por JMX con monitorizacion.MonitorIncidencias
+	private static final MetricasOperacion METRICAS_REGISTRAR = Metricas.operacion("IncidenciasDAO.registrar");
+	private static final MetricasOperacion METRICAS_INSERTAR_LOTE = Metricas.operacion("IncidenciasDAO.insertarPendientes");
+	private static final MetricasOperacion METRICAS_SECUENCIA = Metricas.operacion("IncidenciasDAO.reservarSecuencia");
+	private static final MetricasOperacion METRICAS_BUSCAR = Metricas.operacion("IncidenciasDAO.buscar");
+	private static final MetricasOperacion METRICAS_MODIFICAR = Metricas.operacion("IncidenciasDAO.modificar");
+	private static final MetricasOperacion METRICAS_MODIFICAR_RESUELTA = Metricas.operacion("IncidenciasDAO.modificarResuelta");
+	private static final MetricasOperacion METRICAS_ELIMINAR = Metricas.operacion("IncidenciasDAO.eliminar");
+	private static final MetricasOperacion METRICAS_RESOLVER = Metricas.operacion("IncidenciasDAO.resolver");
+	private static final MetricasOperacion METRICAS_DEVOLVER = Metricas.operacion("IncidenciasDAO.devolver");
+	private static final MetricasOperacion METRICAS_RECORRER = Metricas.operacion("IncidenciasDAO.recorrer");
+	private static final MetricasOperacion METRICAS_CONTAR = Metricas.operacion("IncidenciasDAO.contar");
+	private static final MetricasOperacion METRICAS_PAGINA = Metricas.operacion("IncidenciasDAO.getIncidencias");
+	/**
+	 * Indica si ya se ha comprobado que existe la tabla de secuencias
+	 */
+	private static volatile boolean tablaSecuenciaLista;
+
+	/**
      * Registra una nueva incidencia pendiente en la base de datos.
      *
      * @param con          La conexión a la base de datos
@@ -25,63 +101,255 @@ public class IncidenciasDAO {
      * @return true si se registra correctamente, false si ocurre algún error
      */
     public static boolean registrarIncidencia(Connection con, Estado estado, int puesto, String descripcion) {
-        String sql = "INSERT INTO incidencias_pendientes (identificador, estado, puesto, descripcion, fechaRegistro) VALUES (?, ?, ?, ?, ?)";
+        try {
+            return registrar(con, estado, puesto, descripcion) != null;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
 
-        PreparedStatement sentencia = null;
+    }
 
+    /**
+     * Registra una nueva incidencia dejando pasar los errores de la base de datos.
+     *
+     * @param con          La conexión a la base de datos
+     * @param estado       El estado de la incidencia
+     * @param puesto       El puesto asociado a la incidencia
+     * @param descripcion  La descripción de la incidencia
+     * @return El código asignado, o null si no se ha insertado
+     * @throws SQLException si falla el acceso a la base de datos
+     */
+    public static String registrar(Connection con, Estado estado, int puesto, String descripcion) throws SQLException {
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
         try {
-        
-            sentencia = con.prepareStatement(sql);
-            String codigo = generarCodigoIncidencia(new Date());
-
-            sentencia.setString(1, codigo);
-            sentencia.setString(2, estado.toString());
-            sentencia.setInt(3, puesto);
-            sentencia.setString(4, descripcion);
-            sentencia.setDate(5, new java.sql.Date(new Date().getTime()));
+            LocalDateTime ahora = LocalDateTime.now();
+            String codigo = generarCodigoIncidencia(con, ahora);
+
+            int filasAfectadas = EjecutorSQL.actualizar(con, SQL_INSERTAR_PENDIENTE,
+                    codigo, estado.toString(), puesto, descripcion, java.sql.Date.valueOf(ahora.toLocalDate()));
+            METRICAS_REGISTRAR.registrar(inicio, filasAfectadas);
+            evento.terminar(METRICAS_REGISTRAR, con, codigo, filasAfectadas, false);
+            return filasAfectadas > 0 ? codigo : null;
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_REGISTRAR.error(inicio);
+            evento.terminar(METRICAS_REGISTRAR, con, null, 0, true);
+            throw e;
+        }
+    }
 
-            int filasAfectadas = sentencia.executeUpdate();
-            return filasAfectadas > 0;
+    /**
+     * Registra de una vez varias incidencias pendientes. Los códigos se reservan con una sola
+     * operación sobre la secuencia del día y las filas se insertan con lotes JDBC
+     * ({@code addBatch}/{@code executeBatch}) de {@code incidencias.lote.tamano} filas, que el
+     * driver reescribe como INSERT multifila si la URL lleva {@code rewriteBatchedStatements=true}.
+     *
+     * @param con			La conexión a la base de datos
+     * @param incidencias	Datos de las incidencias a registrar
+     * @return	Los códigos asignados, en el mismo orden que las incidencias; null en las que no se han podido registrar
+     */
+    public static String[] registrarIncidencias(Connection con, Collection<DatosIncidencia> incidencias) {
+        return registrarIncidencias(con, incidencias, TAMANO_LOTE);
+    }
 
+    /**
+     * Registra de una vez varias incidencias pendientes con el tamaño de lote indicado.
+     *
+     * @param con			La conexión a la base de datos
+     * @param incidencias	Datos de las incidencias a registrar
+     * @param tamanoLote	Número de filas por lote
+     * @return	Los códigos asignados, en el mismo orden que las incidencias; null en las que no se han podido registrar
+     */
+    public static String[] registrarIncidencias(Connection con, Collection<DatosIncidencia> incidencias, int tamanoLote) {
+        List<DatosIncidencia> datos = new ArrayList<>(incidencias);
+        String[] codigos = new String[datos.size()];
+        if (datos.isEmpty()) {
+            return codigos;
+        }
+        try {
+            LocalDateTime ahora = LocalDateTime.now();
+            int ultimo = reservarSecuencia(con, ahora.toLocalDate(), datos.size());
+            String prefijo = Incidencias.FORMATO_CODIGO.format(ahora) + "-";
+            for (int i = 0; i < codigos.length; i++) {
+                codigos[i] = prefijo + (ultimo - codigos.length + 1 + i);
+            }
+            boolean[] insertadas;
+            try {
+                insertadas = insertarPendientes(con, codigos, datos, ahora.toLocalDate(), tamanoLote);
+            } catch (InsercionParcialException e) {
+                // Los lotes confirmados antes del error están guardados y conservan su código
+                e.printStackTrace();
+                insertadas = e.getInsertadas();
+            }
+            for (int i = 0; i < codigos.length; i++) {
+                if (!insertadas[i]) {
+                    codigos[i] = null;
+                }
+            }
+            return codigos;
         } catch (SQLException e) {
             e.printStackTrace();
-            return false;
+            return new String[datos.size()];
+        }
+    }
+
+    /**
+     * Inserta incidencias pendientes con códigos ya asignados, confirmando cada lote en su
+     * propia transacción. Si un lote falla se deshace y se reintenta fila a fila para saber
+     * exactamente qué incidencias no se han podido registrar.
+     *
+     * @param con			La conexión a la base de datos
+     * @param codigos		Códigos de las incidencias
+     * @param datos			Datos de las incidencias, en el mismo orden que los códigos
+     * @param fechaRegistro	Fecha de registro de todas las incidencias
+     * @param tamanoLote	Número de filas por lote
+     * @return	Para cada incidencia, true si se ha insertado
+     * @throws InsercionParcialException si falla la conexión fuera de la ejecución de los lotes o hay
+     * 			cualquier otro error; el lote en curso se deshace y la excepción indica qué incidencias
+     * 			quedaron guardadas en los lotes ya confirmados
+     * @throws SQLException si no se puede pasar la conexión a modo transaccional
+     */
+    static boolean[] insertarPendientes(Connection con, String[] codigos, List<DatosIncidencia> datos,
+            LocalDate fechaRegistro, int tamanoLote) throws SQLException {
+        long medicion = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
+        boolean[] insertadas = new boolean[codigos.length];
+        java.sql.Date fecha = java.sql.Date.valueOf(fechaRegistro);
+        int lote = Math.max(1, tamanoLote);
+        boolean autoCommit = con.getAutoCommit();
+        con.setAutoCommit(false);
+        try (PreparedStatement sentencia = con.prepareStatement(SQL_INSERTAR_PENDIENTE)) {
+            for (int inicio = 0; inicio < codigos.length; inicio += lote) {
+                int fin = Math.min(codigos.length, inicio + lote);
+                try {
+                    for (int i = inicio; i < fin; i++) {
+                        asignarPendiente(sentencia, codigos[i], datos.get(i), fecha);
+                        sentencia.addBatch();
+                    }
+                    int[] filas = sentencia.executeBatch();
+                    con.commit();
+                    for (int i = 0; i < filas.length; i++) {
+                        insertadas[inicio + i] = filas[i] > 0 || filas[i] == Statement.SUCCESS_NO_INFO;
+                    }
+                } catch (BatchUpdateException e) {
+                    con.rollback();
+                    sentencia.clearBatch();
+                    for (int i = inicio; i < fin; i++) {
+                        try {
+                            asignarPendiente(sentencia, codigos[i], datos.get(i), fecha);
+                            boolean insertada = sentencia.executeUpdate() > 0;
+                            con.commit();
+                            insertadas[i] = insertada;
+                        } catch (SQLException ex) {
+                            con.rollback();
+                            System.err.println("No se ha podido registrar la incidencia " + codigos[i] + ": " + ex.getMessage());
+                        }
+                    }
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            // Sin deshacer, setAutoCommit del finally confirmaría el lote a medias
+            try {
+                con.rollback();
+            } catch (SQLException ex) {
+                e.addSuppressed(ex);
+            }
+            METRICAS_INSERTAR_LOTE.error(medicion);
+            evento.terminar(METRICAS_INSERTAR_LOTE, con, null, 0, true);
+            throw new InsercionParcialException(insertadas, e);
+        } finally {
+            con.setAutoCommit(autoCommit);
+        }
+        int filas = 0;
+        for (boolean insertada : insertadas) {
+            if (insertada) {
+                filas++;
+            }
         }
+        METRICAS_INSERTAR_LOTE.registrar(medicion, filas);
+        evento.terminar(METRICAS_INSERTAR_LOTE, con, null, filas, false);
+        return insertadas;
+    }
 
+    /**
+     * Asigna los parámetros de la inserción de una incidencia pendiente
+     * @param sentencia	Sentencia de inserción
+     * @param codigo	Código de la incidencia
+     * @param datos		Datos de la incidencia
+     * @param fecha		Fecha de registro
+     * @throws SQLException si falla la asignación de parámetros
+     */
+    private static void asignarPendiente(PreparedStatement sentencia, String codigo, DatosIncidencia datos,
+            java.sql.Date fecha) throws SQLException {
+        sentencia.setString(1, codigo);
+        sentencia.setString(2, Estado.Pendiente.toString());
+        sentencia.setInt(3, datos.getPuesto());
+        sentencia.setString(4, datos.getDescripcion());
+        sentencia.setDate(5, fecha);
     }
 
     /**
-     * Busca una incidencia en la base de datos por su identificador.
+     * Busca una incidencia pendiente por su identificador. Las incidencias encontradas se
+     * guardan en la caché, así que las búsquedas repetidas no llegan a la base de datos.
      *
      * @param con           La conexión a la base de datos
      * @param identificador El identificador de la incidencia a buscar
      * @return La incidencia encontrada, o null si no se encuentra
      */
     public static Incidencias buscarIncidencia(Connection con, String identificador) {
-        String sql = "SELECT * FROM incidencias_pendientes WHERE identificador = ?";
-        PreparedStatement sentencia = null;
-        ResultSet rs = null;
-
         try {
-            sentencia = con.prepareStatement(sql);
-            sentencia.setString(1, identificador);
-            rs = sentencia.executeQuery();
-
-            if (rs.next()) {
-                String iden = rs.getString("identificador");
-                Estado estado = Estado.valueOf(rs.getString("estado"));
-                int puesto = rs.getInt("puesto");
-                String descripcion = rs.getString("descripcion");
-                Incidencias incidencia = new Incidencias(iden, estado, puesto, descripcion);
-                incidencia.setFechaRegistro(rs.getDate("fechaRegistro"));
-                return incidencia;
-            }
+            return buscar(con, identificador);
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return null;
     }
 
+    /**
+     * Busca una incidencia pendiente, pasando por la caché, dejando pasar los errores de la base de datos.
+     *
+     * @param con           La conexión a la base de datos
+     * @param identificador El identificador de la incidencia a buscar
+     * @return La incidencia encontrada, o null si no se encuentra
+     * @throws SQLException si falla el acceso a la base de datos
+     */
+    public static Incidencias buscar(Connection con, String identificador) throws SQLException {
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
+        try {
+            Incidencias incidencia = CACHE.obtener(identificador, iden -> buscarIncidenciaEnBD(con, iden));
+            METRICAS_BUSCAR.registrar(inicio, incidencia == null ? 0 : 1);
+            evento.terminar(METRICAS_BUSCAR, con, identificador, incidencia == null ? 0 : 1, false);
+            return incidencia;
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_BUSCAR.error(inicio);
+            evento.terminar(METRICAS_BUSCAR, con, identificador, 0, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Getter de la caché de búsquedas por identificador
+     * @return La caché de incidencias
+     */
+    public static CacheIncidencias getCache() {
+        return CACHE;
+    }
+
+    /**
+     * Busca una incidencia en la base de datos por su identificador.
+     *
+     * @param con           La conexión a la base de datos
+     * @param identificador El identificador de la incidencia a buscar
+     * @return La incidencia encontrada, o null si no se encuentra
+     * @throws SQLException si falla la consulta
+     */
+    private static Incidencias buscarIncidenciaEnBD(Connection con, String identificador) throws SQLException {
+        String sql = "SELECT * FROM incidencias_pendientes WHERE identificador = ?";
+        return EjecutorSQL.consultarUno(con, sql, new MapeadorIncidencias(), identificador);
+    }
+
     /**
      * Elimina una incidencia de la base de datos.
      *
@@ -91,111 +359,234 @@ public class IncidenciasDAO {
      * @param causaEliminacion  La causa de eliminación de la incidencia
      * @return true si se elimina correctamente, false si ocurre algún error
      */
-    public static boolean eliminarIncidencia(Connection con, String identificador, Date fechaEliminacion, String causaEliminacion) {
-        String sqlDelete = "DELETE FROM incidencias_pendientes WHERE identificador = ?";
-        String sqlInsert = "INSERT INTO incidencias_eliminadas (identificador, estado, puesto, descripcion, fechaRegistro, fechaEliminacion, causaEliminacion) " +
-                           "SELECT identificador, estado, puesto, descripcion, fechaRegistro, ?, ? FROM incidencias_pendientes WHERE identificador = ?";
-        PreparedStatement sentenciaDelete = null;
-        PreparedStatement sentenciaInsert = null;
-
+    public static boolean eliminarIncidencia(Connection con, String identificador, LocalDate fechaEliminacion, String causaEliminacion) {
         try {
+            return eliminar(con, identificador, fechaEliminacion, causaEliminacion);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
 
-            sentenciaInsert = con.prepareStatement(sqlInsert);
-            sentenciaInsert.setDate(1, new java.sql.Date(fechaEliminacion.getTime()));
-            sentenciaInsert.setString(2, causaEliminacion);
-            sentenciaInsert.setString(3, identificador);
-            int filasInsertadas = sentenciaInsert.executeUpdate();
-
-            if (filasInsertadas > 0) {
-                sentenciaDelete = con.prepareStatement(sqlDelete);
-                sentenciaDelete.setString(1, identificador);
-                sentenciaDelete.executeUpdate();
+    /**
+     * Elimina una incidencia pendiente dejando pasar los errores de la base de datos.
+     *
+     * @param con               La conexión a la base de datos
+     * @param identificador     El identificador de la incidencia a eliminar
+     * @param fechaEliminacion  La fecha de eliminación de la incidencia
+     * @param causaEliminacion  La causa de eliminación de la incidencia
+     * @return true si se elimina, false si no estaba pendiente
+     * @throws SQLException si falla el acceso a la base de datos
+     */
+    public static boolean eliminar(Connection con, String identificador, LocalDate fechaEliminacion, String causaEliminacion) throws SQLException {
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
+        try {
+            boolean cambiada;
+            if (Migraciones.usaTablaUnica(con)) {
+                cambiada = cambiarEstado(con, identificador, Estado.Pendiente, Estado.Eliminada,
+                        "fechaEliminacion = ?, causaEliminacion = ?", java.sql.Date.valueOf(fechaEliminacion), causaEliminacion);
+            } else {
+                cambiada = moverIncidencia(con, "CALL " + PROCEDIMIENTO_ELIMINAR + "(?, ?, ?)",
+                        identificador, java.sql.Date.valueOf(fechaEliminacion), causaEliminacion);
             }
+            METRICAS_ELIMINAR.registrar(inicio, cambiada ? 1 : 0);
+            evento.terminar(METRICAS_ELIMINAR, con, identificador, cambiada ? 1 : 0, false);
+            return cambiada;
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_ELIMINAR.error(inicio);
+            evento.terminar(METRICAS_ELIMINAR, con, identificador, 0, true);
+            throw e;
+        } finally {
+            CACHE.invalidar(identificador);
+        }
+    }
 
+    /**
+     * Resuelve una incidencia pendiente moviéndola a la tabla de resueltas.
+     *
+     * @param con               La conexión a la base de datos
+     * @param identificador     El identificador de la incidencia a resolver
+     * @param fechaResolucion   La fecha de resolución de la incidencia
+     * @param resolucion        La resolución de la incidencia
+     * @return true si se resuelve correctamente, false si ocurre algún error
+     */
+    public static boolean resolverIncidencia(Connection con, String identificador, LocalDate fechaResolucion, String resolucion) {
+        try {
+            return resolver(con, identificador, fechaResolucion, resolucion);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
-        return true;
     }
 
     /**
-     * Obtiene la lista de incidencias pendientes de la base de datos.
+     * Resuelve una incidencia pendiente dejando pasar los errores de la base de datos.
      *
-     * @param con La conexión a la base de datos
-     * @return La lista de incidencias pendientes
+     * @param con               La conexión a la base de datos
+     * @param identificador     El identificador de la incidencia a resolver
+     * @param fechaResolucion   La fecha de resolución de la incidencia
+     * @param resolucion        La resolución de la incidencia
+     * @return true si se resuelve, false si no estaba pendiente
+     * @throws SQLException si falla el acceso a la base de datos
      */
-    public static boolean resolverIncidencia(Connection con, String identificador, Date fechaResolucion, String resolucion) {
-        String sqlDelete = "DELETE FROM incidencias_pendientes WHERE identificador = ?";
-        String sqlInsert = "INSERT INTO incidencias_resueltas (identificador, estado, puesto, descripcion, fechaRegistro, fechaResolucion, resolucion) " +
-                           "SELECT identificador, estado, puesto, descripcion, fechaRegistro, ?, ? FROM incidencias_pendientes WHERE identificador = ?";
-        PreparedStatement sentenciaDelete = null;
-        PreparedStatement sentenciaInsert = null;
-
+    public static boolean resolver(Connection con, String identificador, LocalDate fechaResolucion, String resolucion) throws SQLException {
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
         try {
+            boolean cambiada;
+            if (Migraciones.usaTablaUnica(con)) {
+                cambiada = cambiarEstado(con, identificador, Estado.Pendiente, Estado.Resuelta,
+                        "fechaResolucion = ?, resolucion = ?", java.sql.Date.valueOf(fechaResolucion), resolucion);
+            } else {
+                cambiada = moverIncidencia(con, "CALL " + PROCEDIMIENTO_RESOLVER + "(?, ?, ?)",
+                        identificador, java.sql.Date.valueOf(fechaResolucion), resolucion);
+            }
+            METRICAS_RESOLVER.registrar(inicio, cambiada ? 1 : 0);
+            evento.terminar(METRICAS_RESOLVER, con, identificador, cambiada ? 1 : 0, false);
+            return cambiada;
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_RESOLVER.error(inicio);
+            evento.terminar(METRICAS_RESOLVER, con, identificador, 0, true);
+            throw e;
+        } finally {
+            CACHE.invalidar(identificador);
+        }
+    }
 
-            sentenciaInsert = con.prepareStatement(sqlInsert);
-            sentenciaInsert.setDate(1, new java.sql.Date(fechaResolucion.getTime()));
-            sentenciaInsert.setString(2, resolucion);
-            sentenciaInsert.setString(3, identificador);
-            int filasInsertadas = sentenciaInsert.executeUpdate();
+    /**
+     * Mueve una incidencia de una tabla a otra llamando al procedimiento de la transición, que
+     * crea la migración 8 de {@link Migraciones} (se aplica aquí si falta): copia la fila, la borra del origen y confirma
+     * o deshace la transacción en el servidor, así que la transición es un único viaje de ida
+     * y vuelta y nunca queda la incidencia en las dos tablas ni en ninguna.
+     *
+     * @param con			La conexión a la base de datos, en autocommit
+     * @param sql			Sentencia CALL del procedimiento
+     * @param parametros	Parámetros del procedimiento
+     * @return true si se ha movido la incidencia, false si no existía en la tabla de origen
+     * @throws SQLException si la conexión tiene una transacción abierta o falla el procedimiento; la transición queda deshecha
+     */
+    private static boolean moverIncidencia(Connection con, String sql, Object... parametros) throws SQLException {
+        // START TRANSACTION dentro del procedimiento confirmaría lo que tuviera pendiente la conexión
+        if (!con.getAutoCommit()) {
+            throw new SQLException("Las transiciones abren su propia transacción: la conexión tiene que estar en autocommit");
+        }
+        // Los procedimientos los crea la migración 8, que puede no estar aplicada todavía
+        Migraciones.asegurar(con);
+        Integer movida = EjecutorSQL.consultarUno(con, sql, rs -> rs.getInt(1), parametros);
+        return movida != null && movida == 1;
+    }
 
-            if (filasInsertadas > 0) {
-                sentenciaDelete = con.prepareStatement(sqlDelete);
-                sentenciaDelete.setString(1, identificador);
-                sentenciaDelete.executeUpdate();
-            }
-            return false;
+    /**
+     * Cambia de estado una incidencia en el modo de tabla única con un solo UPDATE sobre su
+     * fila: no se copia la descripción ni se toca la clave primaria, y la condición sobre el
+     * estado de origen hace que dos transiciones a la vez no puedan aplicarse las dos.
+     *
+     * @param con			La conexión a la base de datos
+     * @param identificador	El identificador de la incidencia
+     * @param origen		Estado en el que tiene que estar la incidencia
+     * @param destino		Estado al que pasa
+     * @param asignaciones	Asignaciones SET del resto de columnas que cambian
+     * @param parametros	Parámetros de las asignaciones
+     * @return true si ha cambiado de estado, false si no estaba en el estado de origen
+     * @throws SQLException si falla la sentencia
+     */
+    private static boolean cambiarEstado(Connection con, String identificador, Estado origen, Estado destino,
+            String asignaciones, Object... parametros) throws SQLException {
+        String sql = "UPDATE " + TABLA_INCIDENCIAS + " SET estado = ?, " + asignaciones + " WHERE identificador = ? AND estado = ?";
+        Object[] todos = new Object[parametros.length + 3];
+        todos[0] = destino.toString();
+        System.arraycopy(parametros, 0, todos, 1, parametros.length);
+        todos[todos.length - 2] = identificador;
+        todos[todos.length - 1] = origen.toString();
+        return EjecutorSQL.actualizar(con, sql, todos) == 1;
+    }
 
+    /**
+     * Modifica la descripción de una incidencia pendiente.
+     *
+     * @param con              La conexión a la base de datos
+     * @param identificador    El identificador de la incidencia a modificar
+     * @param nuevaDescripcion La nueva descripción de la incidencia
+     * @return true si se modifica correctamente, false si ocurre algún error
+     */
+    public static boolean modificarIncidencia(Connection con, String identificador, String nuevaDescripcion) {
+        try {
+            return modificar(con, identificador, nuevaDescripcion);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
+
     /**
-     * Obtiene la lista de incidencias eliminadas de la base de datos.
+     * Modifica la descripción de una incidencia pendiente dejando pasar los errores de la base de datos.
      *
-     * @param con La conexión a la base de datos
-     * @return La lista de incidencias eliminadas
+     * @param con              La conexión a la base de datos
+     * @param identificador    El identificador de la incidencia a modificar
+     * @param nuevaDescripcion La nueva descripción de la incidencia
+     * @return true si se modifica, false si no existe
+     * @throws SQLException si falla el acceso a la base de datos
      */
-    public static boolean modificarIncidencia(Connection con, String identificador, String nuevaDescripcion) {
+    public static boolean modificar(Connection con, String identificador, String nuevaDescripcion) throws SQLException {
         String sql = "UPDATE incidencias_pendientes SET descripcion = ? WHERE identificador = ?";
-        PreparedStatement sentencia = null;
 
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
         try {
-            sentencia = con.prepareStatement(sql);
-            sentencia.setString(1, nuevaDescripcion);
-            sentencia.setString(2, identificador);
-
-            int filasActualizadas = sentencia.executeUpdate();
-            return filasActualizadas > 0;
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
+            int filas = EjecutorSQL.actualizar(con, sql, nuevaDescripcion, identificador);
+            METRICAS_MODIFICAR.registrar(inicio, filas);
+            evento.terminar(METRICAS_MODIFICAR, con, identificador, filas, false);
+            return filas > 0;
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_MODIFICAR.error(inicio);
+            evento.terminar(METRICAS_MODIFICAR, con, identificador, 0, true);
+            throw e;
+        } finally {
+            CACHE.invalidar(identificador);
         }
     }
     /**
-     * Obtiene la lista de incidencias resueltas de la base de datos.
+     * Modifica la resolución de una incidencia resuelta.
      *
-     * @param con La conexión a la base de datos
-     * @return La lista de incidencias resueltas
+     * @param con             La conexión a la base de datos
+     * @param identificador   El identificador de la incidencia a modificar
+     * @param nuevaResolucion La nueva resolución de la incidencia
+     * @return true si se modifica correctamente, false si ocurre algún error
      */
     public static boolean modificarIncidenciaResuelta(Connection con, String identificador, String nuevaResolucion) {
-        String sql = "UPDATE incidencias_resueltas SET resolucion = ? WHERE identificador = ?";
-        PreparedStatement sentencia = null;
-
         try {
-            sentencia = con.prepareStatement(sql);
-            sentencia.setString(1, nuevaResolucion);
-            sentencia.setString(2, identificador);
-
-            int filasActualizadas = sentencia.executeUpdate();
-            return filasActualizadas > 0;
+            return modificarResuelta(con, identificador, nuevaResolucion);
         } catch (SQLException e) {
             e.printStackTrace();
             return false;
         }
     }
+
+    /**
+     * Modifica la resolución de una incidencia resuelta dejando pasar los errores de la base de datos.
+     *
+     * @param con             La conexión a la base de datos
+     * @param identificador   El identificador de la incidencia a modificar
+     * @param nuevaResolucion La nueva resolución de la incidencia
+     * @return true si se modifica, false si no existe
+     * @throws SQLException si falla el acceso a la base de datos
+     */
+    public static boolean modificarResuelta(Connection con, String identificador, String nuevaResolucion) throws SQLException {
+        String sql = "UPDATE incidencias_resueltas SET resolucion = ? WHERE identificador = ?";
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
+        try {
+            int filas = EjecutorSQL.actualizar(con, sql, nuevaResolucion, identificador);
+            METRICAS_MODIFICAR_RESUELTA.registrar(inicio, filas);
+            evento.terminar(METRICAS_MODIFICAR_RESUELTA, con, identificador, filas, false);
+            return filas > 0;
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_MODIFICAR_RESUELTA.error(inicio);
+            evento.terminar(METRICAS_MODIFICAR_RESUELTA, con, identificador, 0, true);
+            throw e;
+        }
+    }
     /**
      * Devuelve las incidencias resueltas a estado pendiente y las elimina de la lista de resueltas.
      * 
@@ -204,37 +595,43 @@ public class IncidenciasDAO {
      * @return true si se devuelve correctamente, false si ocurre algún error
      */
     public static boolean devolverIncidenciasResueltas(Connection con, String identificador) {
-        String selectSQL = "SELECT * FROM incidencias_resueltas WHERE identificador = ?";
-        String insertSQL = "INSERT INTO incidencias_pendientes (identificador, estado, puesto, descripcion, fechaRegistro) VALUES (?, ?, ?, ?, ?)";
-        String deleteSQL = "DELETE FROM incidencias_resueltas WHERE identificador = ?";
-        PreparedStatement selectStatement = null;
-        PreparedStatement insertStatement = null;
-        PreparedStatement deleteStatement = null;
-        ResultSet rs = null;
-
         try {
-        	selectStatement = con.prepareStatement(selectSQL);
-        	selectStatement.setString(1, identificador);
-            rs = selectStatement.executeQuery();
-
-            if (rs.next()) {
-                insertStatement = con.prepareStatement(insertSQL);
-                insertStatement.setString(1, rs.getString("identificador"));
-                insertStatement.setString(2, Estado.Pendiente.toString());
-                insertStatement.setInt(3, rs.getInt("puesto"));
-                insertStatement.setString(4, rs.getString("descripcion"));
-                insertStatement.setDate(5, rs.getDate("fechaRegistro"));
-
-                insertStatement.executeUpdate();
-
-                deleteStatement = con.prepareStatement(deleteSQL);
-                deleteStatement.setString(1, identificador);
-                deleteStatement.executeUpdate();
-            }
+            return devolver(con, identificador);
         } catch (SQLException e) {
             e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Devuelve una incidencia resuelta a pendientes dejando pasar los errores de la base de datos.
+     *
+     * @param con           La conexión a la base de datos
+     * @param identificador El identificador de la incidencia a devolver
+     * @return true si se devuelve, false si no estaba resuelta
+     * @throws SQLException si falla el acceso a la base de datos
+     */
+    public static boolean devolver(Connection con, String identificador) throws SQLException {
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
+        try {
+            boolean cambiada;
+            if (Migraciones.usaTablaUnica(con)) {
+                cambiada = cambiarEstado(con, identificador, Estado.Resuelta, Estado.Pendiente,
+                        "fechaResolucion = NULL, resolucion = NULL");
+            } else {
+                cambiada = moverIncidencia(con, "CALL " + PROCEDIMIENTO_DEVOLVER + "(?)", identificador);
+            }
+            METRICAS_DEVOLVER.registrar(inicio, cambiada ? 1 : 0);
+            evento.terminar(METRICAS_DEVOLVER, con, identificador, cambiada ? 1 : 0, false);
+            return cambiada;
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_DEVOLVER.error(inicio);
+            evento.terminar(METRICAS_DEVOLVER, con, identificador, 0, true);
+            throw e;
+        } finally {
+            CACHE.invalidar(identificador);
         }
-        return false;
     }
 
     /**
@@ -245,27 +642,7 @@ public class IncidenciasDAO {
      */
     public static List<Incidencias> getIncidenciasPendientes(Connection con) {
         List<Incidencias> incidencias = new ArrayList<>();
-        String sql = "SELECT * FROM incidencias_pendientes";
-        PreparedStatement sentencia = null;
-        ResultSet rs = null;
-
-        try {
-            sentencia = con.prepareStatement(sql);
-            rs = sentencia.executeQuery();
-
-            while (rs.next()) {
-                String iden = rs.getString("identificador");
-                Estado estado = Estado.valueOf(rs.getString("estado"));
-                int puesto = rs.getInt("puesto");
-                String descripcion = rs.getString("descripcion");
-                Incidencias incidencia = new Incidencias(iden, estado, puesto, descripcion);
-                incidencia.setFechaRegistro(rs.getDate("fechaRegistro"));
-                incidencias.add(incidencia);
-            }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        recorrerIncidencias(con, Estado.Pendiente, incidencias::add);
         return incidencias;
     }
 
@@ -277,32 +654,7 @@ public class IncidenciasDAO {
      */
     public static List<Incidencias> getIncidenciasEliminadas(Connection con) {
         List<Incidencias> incidencias = new ArrayList<>();
-        String sql = "SELECT * FROM incidencias_eliminadas";
-        PreparedStatement sentencia = null;
-        ResultSet rs = null;
-
-        try {
-            sentencia = con.prepareStatement(sql);
-            rs = sentencia.executeQuery();
-
-            while (rs.next()) {
-            	String iden = rs.getString("identificador");
-                Estado estado = Estado.valueOf(rs.getString("estado"));
-                int puesto = rs.getInt("puesto");
-                String descripcion = rs.getString("descripcion");
-                Date fechaRegistro = rs.getDate("fechaRegistro");
-                Date fechaEliminacion = rs.getDate("fechaEliminacion");
-                String causaEliminacion = rs.getString("causaEliminacion");
-                Incidencias incidencia = new Incidencias(iden, estado, puesto, descripcion);
-                incidencia.setFechaRegistro(fechaRegistro);
-                incidencia.setFechaEliminacion(fechaEliminacion);
-                incidencia.setCausaEliminacion(causaEliminacion);
-                incidencias.add(incidencia);
-            }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        recorrerIncidencias(con, Estado.Eliminada, incidencias::add);
         return incidencias;
     }
 
@@ -314,69 +666,316 @@ public class IncidenciasDAO {
      */
     public static List<Incidencias> getIncidenciasResueltas(Connection con) {
         List<Incidencias> incidencias = new ArrayList<>();
-        String sql = "SELECT * FROM incidencias_resueltas";
-        PreparedStatement sentencia = null;
-        ResultSet rs = null;
+        recorrerIncidencias(con, Estado.Resuelta, incidencias::add);
+        return incidencias;
+    }
 
+    /**
+     * Recorre las incidencias de un estado sin cargarlas todas en memoria: el driver las va
+     * trayendo con un cursor de {@code incidencias.fetch.tamano} filas y cada una se entrega
+     * a la acción en cuanto se lee, ordenadas por fecha de registro e identificador.
+     *
+     * @param con		La conexión a la base de datos
+     * @param estado	Estado de las incidencias a recorrer
+     * @param accion	Acción que recibe cada incidencia
+     * @return	El número de incidencias recorridas
+     */
+    public static int recorrerIncidencias(Connection con, Estado estado, Consumer<Incidencias> accion) {
         try {
-            sentencia = con.prepareStatement(sql);
-            rs = sentencia.executeQuery();
-
-            while (rs.next()) {
-            	String iden = rs.getString("identificador");
-                Estado estado = Estado.valueOf(rs.getString("estado"));
-                int puesto = rs.getInt("puesto");
-                String descripcion = rs.getString("descripcion");
-                Date fechaRegistro = rs.getDate("fechaRegistro");
-                Date fechaResolucion = rs.getDate("fechaResolucion");
-                String resolucion = rs.getString("resolucion");
-                Incidencias incidencia = new Incidencias(iden, estado, puesto, descripcion);
-                incidencia.setFechaRegistro(fechaRegistro);
-                incidencia.setFechaResolucion(fechaResolucion);
-                incidencia.setResolucion(resolucion);
-                incidencias.add(incidencia);
-                
-            }
+            return recorrer(con, estado, accion);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Recorre las incidencias de un estado dejando pasar los errores de la base de datos.
+     *
+     * @param con		La conexión a la base de datos
+     * @param estado	Estado de las incidencias a recorrer
+     * @param accion	Acción que recibe cada incidencia
+     * @return	El número de incidencias recorridas
+     * @throws SQLException si falla la consulta
+     */
+    public static int recorrer(Connection con, Estado estado, Consumer<Incidencias> accion) throws SQLException {
+        String sql = "SELECT * FROM " + tabla(estado) + " ORDER BY fechaRegistro, identificador";
+        return medirRecorrido(con, sql, accion);
+    }
+
+    /**
+     * Recorre las incidencias de un estado cuya fecha está en un intervalo, sin cargarlas
+     * todas en memoria. La fecha es la de resolución para las resueltas, la de eliminación
+     * para las eliminadas y la de registro para las pendientes, y las incidencias se entregan
+     * ordenadas por esa fecha e identificador.
+     *
+     * @param con		La conexión a la base de datos
+     * @param estado	Estado de las incidencias a recorrer
+     * @param desde		Primer día incluido, o null para no poner límite
+     * @param hasta		Último día incluido, o null para no poner límite
+     * @param accion	Acción que recibe cada incidencia
+     * @return	El número de incidencias recorridas
+     * @throws SQLException si falla la consulta
+     */
+    public static int recorrerIncidencias(Connection con, Estado estado, LocalDate desde, LocalDate hasta,
+            Consumer<Incidencias> accion) throws SQLException {
+        String columna = columnaFecha(estado);
+        List<Object> parametros = new ArrayList<>(2);
+        String sql = "SELECT * FROM " + tabla(estado) + filtroFechas(columna, desde, hasta, parametros)
+                + " ORDER BY " + columna + ", identificador";
+        return medirRecorrido(con, sql, accion, parametros.toArray());
+    }
+
+    /**
+     * Recorre el resultado de una consulta de incidencias registrando sus métricas
+     * @param con			La conexión a la base de datos
+     * @param sql			Consulta
+     * @param accion		Acción que recibe cada incidencia
+     * @param parametros	Parámetros de la consulta
+     * @return	El número de incidencias recorridas
+     * @throws SQLException si falla la consulta
+     */
+    private static int medirRecorrido(Connection con, String sql, Consumer<Incidencias> accion, Object... parametros) throws SQLException {
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
+        try {
+            int total = EjecutorSQL.recorrer(con, sql, TAMANO_FETCH, new MapeadorIncidencias(), accion, parametros);
+            METRICAS_RECORRER.registrar(inicio, total);
+            evento.terminar(METRICAS_RECORRER, con, null, total, false);
+            return total;
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_RECORRER.error(inicio);
+            evento.terminar(METRICAS_RECORRER, con, null, 0, true);
+            throw e;
+        }
+    }
 
+    /**
+     * Cuenta las incidencias de un estado.
+     *
+     * @param con		La conexión a la base de datos
+     * @param estado	Estado de las incidencias
+     * @return	El número de incidencias, o 0 si ocurre algún error
+     */
+    public static int contarIncidencias(Connection con, Estado estado) {
+        try {
+            return contar(con, estado);
         } catch (SQLException e) {
             e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Cuenta las incidencias de un estado dejando pasar los errores de la base de datos.
+     *
+     * @param con		La conexión a la base de datos
+     * @param estado	Estado de las incidencias
+     * @return	El número de incidencias
+     * @throws SQLException si falla la consulta
+     */
+    static int contar(Connection con, Estado estado) throws SQLException {
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
+        try {
+            Integer total = EjecutorSQL.consultarUno(con, "SELECT COUNT(*) FROM " + tabla(estado), rs -> rs.getInt(1));
+            METRICAS_CONTAR.registrar(inicio, 1);
+            evento.terminar(METRICAS_CONTAR, con, null, 1, false);
+            return total == null ? 0 : total;
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_CONTAR.error(inicio);
+            evento.terminar(METRICAS_CONTAR, con, null, 0, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Obtiene una página de incidencias de un estado usando paginación por clave: la página
+     * empieza justo después de la incidencia indicada en el orden (fechaRegistro, identificador),
+     * así que el coste no depende de lo avanzada que esté la página.
+     *
+     * @param con		La conexión a la base de datos
+     * @param estado	Estado de las incidencias
+     * @param despuesDe	Última incidencia de la página anterior, o null para la primera página
+     * @param limite	Número máximo de incidencias de la página
+     * @return	La página de incidencias, vacía si ocurre algún error
+     */
+    public static List<Incidencias> getIncidencias(Connection con, Estado estado, Incidencias despuesDe, int limite) {
+        try {
+            return pagina(con, estado, despuesDe, limite);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
         }
-        return incidencias;
     }
 
     /**
-     * Método encargado de generar un nuevo codigo de incidencia
-     * @param fechaRegistro	Fecha de registro de la incidencia
-     * @return	Devuelve el codigo generado de la incidencia
-     * @throws SQLException 
+     * Obtiene una página de incidencias de un estado dejando pasar los errores de la base de datos.
+     *
+     * @param con		La conexión a la base de datos
+     * @param estado	Estado de las incidencias
+     * @param despuesDe	Última incidencia de la página anterior, o null para la primera página
+     * @param limite	Número máximo de incidencias de la página
+     * @return	La página de incidencias
+     * @throws SQLException si falla la consulta
      */
-    public static String generarCodigoIncidencia(Date fechaRegistro) throws SQLException {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy-HH:mm");
-        String fechaFormateada = dateFormat.format(fechaRegistro);
-        Connection con = ConexionBD.conectar();
-        List<Incidencias> incidenciasPendientes = getIncidenciasPendientes(con);
-        
-        int contador = 1;
-        for (Incidencias incidencia : incidenciasPendientes) {
-            Date fechaIncidencia = incidencia.getFechaIncidencia();
-            if (mismoDia(fechaRegistro, fechaIncidencia)) {
-                contador++;
+    public static List<Incidencias> pagina(Connection con, Estado estado, Incidencias despuesDe, int limite) throws SQLException {
+        String sql = "SELECT * FROM " + tabla(estado)
+                + (despuesDe == null ? "" : " WHERE fechaRegistro > ? OR (fechaRegistro = ? AND identificador > ?)")
+                + " ORDER BY fechaRegistro, identificador LIMIT ?";
+
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
+        try {
+            List<Incidencias> pagina;
+            if (despuesDe == null) {
+                pagina = EjecutorSQL.consultarLista(con, sql, new MapeadorIncidencias(), limite);
+            } else {
+                java.sql.Date fecha = java.sql.Date.valueOf(despuesDe.getFechaRegistro());
+                pagina = EjecutorSQL.consultarLista(con, sql, new MapeadorIncidencias(),
+                        fecha, fecha, despuesDe.getIdentificador(), limite);
             }
+            METRICAS_PAGINA.registrar(inicio, pagina.size());
+            evento.terminar(METRICAS_PAGINA, con, null, pagina.size(), false);
+            return pagina;
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_PAGINA.error(inicio);
+            evento.terminar(METRICAS_PAGINA, con, null, 0, true);
+            throw e;
+        }
+    }
+
+    /**
+     * Tabla en la que se guardan las incidencias de un estado; en el modo de tabla única es la
+     * vista de ese estado sobre la tabla {@code incidencias}
+     * @param estado	Estado de las incidencias
+     * @return	Nombre de la tabla
+     */
+    static String tabla(Estado estado) {
+        return switch (estado) {
+            case Pendiente -> "incidencias_pendientes";
+            case Resuelta -> "incidencias_resueltas";
+            case Eliminada -> "incidencias_eliminadas";
+        };
+    }
+
+    /**
+     * Columna con la fecha en la que una incidencia pasó a un estado
+     * @param estado	Estado de las incidencias
+     * @return	Nombre de la columna
+     */
+    static String columnaFecha(Estado estado) {
+        return switch (estado) {
+            case Pendiente -> "fechaRegistro";
+            case Resuelta -> "fechaResolucion";
+            case Eliminada -> "fechaEliminacion";
+        };
+    }
+
+    /**
+     * Construye la condición WHERE de un intervalo de días y añade sus parámetros
+     * @param columna		Columna de fecha
+     * @param desde			Primer día incluido, o null para no poner límite
+     * @param hasta			Último día incluido, o null para no poner límite
+     * @param parametros	Lista a la que se añaden los parámetros de la condición
+     * @return	La condición, o una cadena vacía si no hay límites
+     */
+    static String filtroFechas(String columna, LocalDate desde, LocalDate hasta, List<Object> parametros) {
+        StringBuilder filtro = new StringBuilder();
+        if (desde != null) {
+            filtro.append(" WHERE ").append(columna).append(" >= ?");
+            parametros.add(java.sql.Date.valueOf(desde));
         }
+        if (hasta != null) {
+            filtro.append(desde == null ? " WHERE " : " AND ").append(columna).append(" < ?");
+            parametros.add(java.sql.Date.valueOf(hasta.plusDays(1)));
+        }
+        return filtro.toString();
+    }
+
+    /**
+     * Genera un nuevo código de incidencia con el formato {@code dd/MM/yyyy-HH:mm-N}, donde N
+     * es el siguiente valor de la secuencia diaria guardada en la tabla secuencia_incidencias.
+     * El incremento es atómico en la base de datos, así que no se repiten códigos aunque
+     * registren varios operadores o varias instancias a la vez.
+     *
+     * @param con			La conexión a la base de datos
+     * @param fechaRegistro	Fecha y hora de registro de la incidencia
+     * @return	El código generado
+     * @throws SQLException si falla el acceso a la secuencia
+     */
+    static String generarCodigoIncidencia(Connection con, LocalDateTime fechaRegistro) throws SQLException {
+        int numero = reservarSecuencia(con, fechaRegistro.toLocalDate(), 1);
+        return Incidencias.FORMATO_CODIGO.format(fechaRegistro) + "-" + numero;
+    }
 
-        // Concatena la fecha formateada y el contador para generar el nuevo código
-        return fechaFormateada + "-" + contador;
+    /**
+     * Reserva de una vez los siguientes {@code cantidad} números de la secuencia del día.
+     * Se resuelve en una única sentencia: LAST_INSERT_ID(expr) deja el nuevo valor como
+     * clave generada de la propia sentencia.
+     *
+     * @param con		La conexión a la base de datos
+     * @param dia		Día de la secuencia
+     * @param cantidad	Números a reservar
+     * @return	El último número reservado; los reservados van de {@code ultimo - cantidad + 1} a {@code ultimo}
+     * @throws SQLException si falla el acceso a la secuencia
+     */
+    static int reservarSecuencia(Connection con, LocalDate dia, int cantidad) throws SQLException {
+        long inicio = System.nanoTime();
+        EventoDAO evento = EventoDAO.iniciar();
+        asegurarTablaSecuencia(con);
+        try (PreparedStatement sentencia = con.prepareStatement(SQL_RESERVAR_SECUENCIA, Statement.RETURN_GENERATED_KEYS)) {
+            sentencia.setDate(1, java.sql.Date.valueOf(dia));
+            sentencia.setInt(2, cantidad);
+            sentencia.setInt(3, cantidad);
+            sentencia.executeUpdate();
+            // Con ON DUPLICATE KEY UPDATE el driver puede devolver varias claves; la primera es LAST_INSERT_ID()
+            try (ResultSet rs = sentencia.getGeneratedKeys()) {
+                if (rs.next()) {
+                    METRICAS_SECUENCIA.registrar(inicio, cantidad);
+                    evento.terminar(METRICAS_SECUENCIA, con, null, cantidad, false);
+                    return rs.getInt(1);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            METRICAS_SECUENCIA.error(inicio);
+            evento.terminar(METRICAS_SECUENCIA, con, null, 0, true);
+            throw e;
+        }
+        METRICAS_SECUENCIA.error(inicio);
+        evento.terminar(METRICAS_SECUENCIA, con, null, 0, true);
+        throw new SQLException("No se ha podido reservar la secuencia del día " + dia);
     }
 
     /**
-     * Método que compara las dos fecha para comprobar si es el mismo dia
-     * @param fecha1	Fecha de la incidencia anterior
-     * @param fecha2	Fecha de la nueva incidencia
-     * @return			Devuelve true si son iguales o false en caso contrario
+     * Crea la tabla de secuencias la primera vez que se usa y la inicializa con el mayor
+     * número ya asignado cada día en las tablas de incidencias, para no repetir códigos existentes.
+     * Al arrancar la crea la migración 1 de {@link Migraciones}; esto cubre las herramientas
+     * que registran sin haber migrado antes.
+     *
+     * @param con La conexión a la base de datos
+     * @throws SQLException si falla la creación de la tabla
      */
-    private static boolean mismoDia(Date fecha1, Date fecha2) {
-        SimpleDateFormat fmt = new SimpleDateFormat("yyyyMMdd");
-        return fmt.format(fecha1).equals(fmt.format(fecha2));
+    private static void asegurarTablaSecuencia(Connection con) throws SQLException {
+        if (tablaSecuenciaLista) {
+            return;
+        }
+        synchronized (IncidenciasDAO.class) {
+            if (tablaSecuenciaLista) {
+                return;
+            }
+            boolean existe;
+            try (ResultSet rs = con.getMetaData().getTables(con.getCatalog(), null, "secuencia_incidencias", null)) {
+                existe = rs.next();
+            }
+            if (!existe) {
+                try (Statement sentencia = con.createStatement()) {
+                    sentencia.executeUpdate(SQL_CREAR_SECUENCIA);
+                    sentencia.executeUpdate(SQL_INICIALIZAR_SECUENCIA);
+                }
+            }
+            tablaSecuenciaLista = true;
+        }
     }
-    
+
 }
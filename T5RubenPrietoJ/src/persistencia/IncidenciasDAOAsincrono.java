@@ -0,0 +1,207 @@
+package persistencia;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import concurrencia.Hilos;
+
+import dominio.Estado;
+import dominio.Incidencias;
+
+/**
+ * Versión asíncrona de {@link IncidenciasDAO}.
+ * <p>
+ * Cada operación se ejecuta en segundo plano con su propia conexión del pool y devuelve un
+ * {@link CompletableFuture}. Si falla la base de datos el futuro termina con la
+ * {@link SQLException} como causa en lugar de devolver false, así que quien lo usa puede
+ * distinguir un error de un "no encontrado". Las consultas independientes se pueden lanzar
+ * a la vez y combinarse, como hace {@link #contarTodas()}, de modo que una pantalla con
+ * varias consultas tarda lo que la más lenta y no la suma de todas.
+ * <p>
+ * Las tareas se ejecutan en los hilos que crea {@link Hilos}; en cualquier caso no hay
+ * más tareas a la vez que conexiones tiene el pool, y esperan como mucho
+ * {@code incidencias.asincrono.cola} tareas (1000). Si ya hay tantas esperando la operación
+ * no se ejecuta en el hilo de quien la pide: su futuro termina enseguida con
+ * {@link RejectedExecutionException}, de modo que la API sigue siendo asíncrona con carga.
+ */
+public class IncidenciasDAOAsincrono implements AutoCloseable {
+	private static final int COLA = Integer.getInteger("incidencias.asincrono.cola", 1000);
+
+	private final ExecutorService hilos;
+	private final Semaphore permisos;
+
+	/**
+	 * Operación del DAO sobre una conexión
+	 * @param <T> Tipo del resultado
+	 */
+	@FunctionalInterface
+	private interface OperacionSQL<T> {
+		T ejecutar(Connection con) throws SQLException;
+	}
+
+	/**
+	 * Constructor con tantas tareas simultáneas como conexiones tiene el pool
+	 */
+	public IncidenciasDAOAsincrono() {
+		this(ConexionBD.getPool().getMaximo());
+	}
+
+	/**
+	 * Constructor del DAO asíncrono
+	 * @param simultaneas Número máximo de operaciones ejecutándose a la vez
+	 */
+	public IncidenciasDAOAsincrono(int simultaneas) {
+		this.permisos = new Semaphore(simultaneas);
+		this.hilos = Hilos.crearEjecutor("dao-asincrono", simultaneas, COLA, true);
+	}
+
+	/**
+	 * Registra una nueva incidencia pendiente
+	 * @param puesto		El puesto asociado a la incidencia
+	 * @param descripcion	La descripción de la incidencia
+	 * @return El código asignado, o null si no se ha insertado
+	 */
+	public CompletableFuture<String> registrarIncidencia(int puesto, String descripcion) {
+		return ejecutar(con -> IncidenciasDAO.registrar(con, Estado.Pendiente, puesto, descripcion));
+	}
+
+	/**
+	 * Busca una incidencia pendiente por su identificador
+	 * @param identificador El identificador de la incidencia
+	 * @return La incidencia, o null si no se encuentra
+	 */
+	public CompletableFuture<Incidencias> buscarIncidencia(String identificador) {
+		return ejecutar(con -> IncidenciasDAO.buscar(con, identificador));
+	}
+
+	/**
+	 * Modifica la descripción de una incidencia pendiente
+	 * @param identificador		El identificador de la incidencia
+	 * @param nuevaDescripcion	La nueva descripción
+	 * @return true si se modifica, false si no existe
+	 */
+	public CompletableFuture<Boolean> modificarIncidencia(String identificador, String nuevaDescripcion) {
+		return ejecutar(con -> IncidenciasDAO.modificar(con, identificador, nuevaDescripcion));
+	}
+
+	/**
+	 * Elimina una incidencia pendiente
+	 * @param identificador		El identificador de la incidencia
+	 * @param fechaEliminacion	La fecha de eliminación
+	 * @param causaEliminacion	La causa de eliminación
+	 * @return true si se elimina, false si no estaba pendiente
+	 */
+	public CompletableFuture<Boolean> eliminarIncidencia(String identificador, LocalDate fechaEliminacion, String causaEliminacion) {
+		return ejecutar(con -> IncidenciasDAO.eliminar(con, identificador, fechaEliminacion, causaEliminacion));
+	}
+
+	/**
+	 * Resuelve una incidencia pendiente
+	 * @param identificador		El identificador de la incidencia
+	 * @param fechaResolucion	La fecha de resolución
+	 * @param resolucion		La resolución
+	 * @return true si se resuelve, false si no estaba pendiente
+	 */
+	public CompletableFuture<Boolean> resolverIncidencia(String identificador, LocalDate fechaResolucion, String resolucion) {
+		return ejecutar(con -> IncidenciasDAO.resolver(con, identificador, fechaResolucion, resolucion));
+	}
+
+	/**
+	 * Modifica la resolución de una incidencia resuelta
+	 * @param identificador		El identificador de la incidencia
+	 * @param nuevaResolucion	La nueva resolución
+	 * @return true si se modifica, false si no existe
+	 */
+	public CompletableFuture<Boolean> modificarIncidenciaResuelta(String identificador, String nuevaResolucion) {
+		return ejecutar(con -> IncidenciasDAO.modificarResuelta(con, identificador, nuevaResolucion));
+	}
+
+	/**
+	 * Devuelve una incidencia resuelta a pendientes
+	 * @param identificador El identificador de la incidencia
+	 * @return true si se devuelve, false si no estaba resuelta
+	 */
+	public CompletableFuture<Boolean> devolverIncidenciaResuelta(String identificador) {
+		return ejecutar(con -> IncidenciasDAO.devolver(con, identificador));
+	}
+
+	/**
+	 * Obtiene las incidencias de un estado
+	 * @param estado Estado de las incidencias
+	 * @return Las incidencias ordenadas por fecha de registro e identificador
+	 */
+	public CompletableFuture<List<Incidencias>> getIncidencias(Estado estado) {
+		return ejecutar(con -> {
+			List<Incidencias> incidencias = new ArrayList<>();
+			IncidenciasDAO.recorrer(con, estado, incidencias::add);
+			return incidencias;
+		});
+	}
+
+	/**
+	 * Cuenta las incidencias de un estado
+	 * @param estado Estado de las incidencias
+	 * @return El número de incidencias
+	 */
+	public CompletableFuture<Integer> contarIncidencias(Estado estado) {
+		return ejecutar(con -> IncidenciasDAO.contar(con, estado));
+	}
+
+	/**
+	 * Cuenta a la vez las incidencias de todos los estados
+	 * @return El número de incidencias de cada estado
+	 */
+	public CompletableFuture<Map<Estado, Integer>> contarTodas() {
+		Map<Estado, CompletableFuture<Integer>> cuentas = new EnumMap<>(Estado.class);
+		for (Estado estado : Estado.values()) {
+			cuentas.put(estado, contarIncidencias(estado));
+		}
+		return CompletableFuture.allOf(cuentas.values().toArray(new CompletableFuture<?>[0])).thenApply(nada -> {
+			Map<Estado, Integer> totales = new EnumMap<>(Estado.class);
+			cuentas.forEach((estado, cuenta) -> totales.put(estado, cuenta.join()));
+			return totales;
+		});
+	}
+
+	/**
+	 * Deja de aceptar operaciones; las que están en marcha terminan
+	 */
+	@Override
+	public void close() {
+		hilos.shutdown();
+	}
+
+	/**
+	 * Método que ejecuta una operación en segundo plano con su propia conexión
+	 * @param <T>		Tipo del resultado
+	 * @param operacion	Operación a ejecutar
+	 * @return Futuro con el resultado, o terminado con la excepción de la operación o con
+	 * {@link RejectedExecutionException} si hay demasiadas operaciones esperando
+	 */
+	private <T> CompletableFuture<T> ejecutar(OperacionSQL<T> operacion) {
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				permisos.acquireUninterruptibly();
+				try (Connection con = ConexionBD.obtenerConexion()) {
+					return operacion.ejecutar(con);
+				} catch (SQLException e) {
+					throw new CompletionException(e);
+				} finally {
+					permisos.release();
+				}
+			}, hilos);
+		} catch (RejectedExecutionException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package persistencia;
+
+import java.sql.SQLException;
+
+/**
+ * Error de una inserción por lotes que se ha cortado a medias. Los lotes confirmados antes
+ * del error sí están guardados en la base de datos; {@link #getInsertadas()} indica qué
+ * incidencias son, y el lote que estaba en curso se ha deshecho.
+ */
+class InsercionParcialException extends SQLException {
+	private static final long serialVersionUID = 1L;
+
+	private final boolean[] insertadas;
+
+	/**
+	 * Constructor de la excepción
+	 * @param insertadas	Para cada incidencia, true si quedó guardada antes del error
+	 * @param causa			Error que cortó la inserción
+	 */
+	InsercionParcialException(boolean[] insertadas, Throwable causa) {
+		super("Inserción por lotes interrumpida con " + contar(insertadas) + " de " + insertadas.length
+				+ " incidencias guardadas: " + causa.getMessage(),
+				causa instanceof SQLException error ? error.getSQLState() : null, 0, causa);
+		this.insertadas = insertadas;
+	}
+
+	/**
+	 * Getter de las incidencias guardadas antes del error
+	 * @return Para cada incidencia, true si está guardada
+	 */
+	boolean[] getInsertadas() {
+		return insertadas;
+	}
+
+	private static int contar(boolean[] insertadas) {
+		int total = 0;
+		for (boolean insertada : insertadas) {
+			if (insertada) {
+				total++;
+			}
+		}
+		return total;
+	}
+}
@@ -0,0 +1,19 @@
+package persistencia;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte la fila actual de un ResultSet en un objeto
+ * @param <T> Tipo del objeto obtenido de cada fila
+ */
+@FunctionalInterface
+interface MapeadorFila<T> {
+	/**
+	 * Crea el objeto correspondiente a la fila actual
+	 * @param rs	ResultSet posicionado en la fila a convertir
+	 * @return		El objeto creado
+	 * @throws SQLException si falla la lectura de alguna columna
+	 */
+	T mapear(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,144 @@
+package persistencia;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import dominio.Estado;
+import dominio.Incidencias;
+
+/**
+ * Mapeador de filas de las tablas de incidencias.
+ * <p>
+ * La primera vez que recibe un ResultSet busca la posición de cada columna en sus
+ * metadatos y a partir de ahí lee todas las filas por posición. Las columnas que no
+ * estén en la consulta (por ejemplo, la resolución en incidencias_pendientes) se dejan a
+ * null. Cada instancia guarda las posiciones del último ResultSet, así que debe usarse
+ * en una sola consulta a la vez.
+ */
+final class MapeadorIncidencias implements MapeadorFila<Incidencias> {
+	/**
+	 * Estados por su nombre en la base de datos
+	 */
+	private static final Map<String, Estado> ESTADOS = new HashMap<>();
+
+	static {
+		for (Estado estado : Estado.values()) {
+			ESTADOS.put(estado.name(), estado);
+		}
+	}
+
+	/**
+	 * ResultSet del que se han resuelto las posiciones de las columnas
+	 */
+	private ResultSet resultSet;
+	private int identificador;
+	private int estado;
+	private int puesto;
+	private int descripcion;
+	private int fechaRegistro;
+	private int fechaResolucion;
+	private int resolucion;
+	private int fechaEliminacion;
+	private int causaEliminacion;
+
+	@Override
+	public Incidencias mapear(ResultSet rs) throws SQLException {
+		if (rs != resultSet) {
+			resolverColumnas(rs);
+		}
+		return new Incidencias(
+				rs.getString(identificador),
+				estado(rs.getString(estado)),
+				rs.getInt(puesto),
+				rs.getString(descripcion),
+				fecha(rs, fechaRegistro),
+				fecha(rs, fechaResolucion),
+				resolucion > 0 ? rs.getString(resolucion) : null,
+				fecha(rs, fechaEliminacion),
+				causaEliminacion > 0 ? rs.getString(causaEliminacion) : null);
+	}
+
+	/**
+	 * Lee una columna de tipo fecha
+	 * @param rs		ResultSet posicionado en la fila
+	 * @param columna	Posición de la columna, o 0 si no está en el ResultSet
+	 * @return	La fecha, o null si la columna no está o es NULL
+	 * @throws SQLException si falla la lectura
+	 */
+	private static LocalDate fecha(ResultSet rs, int columna) throws SQLException {
+		if (columna == 0) {
+			return null;
+		}
+		Date fecha = rs.getDate(columna);
+		return fecha != null ? fecha.toLocalDate() : null;
+	}
+
+	/**
+	 * Busca la posición de cada columna en los metadatos del ResultSet
+	 * @param rs	ResultSet de la consulta
+	 * @throws SQLException si falta alguna columna obligatoria
+	 */
+	private void resolverColumnas(ResultSet rs) throws SQLException {
+		ResultSetMetaData metadatos = rs.getMetaData();
+		identificador = obligatoria(metadatos, "identificador");
+		estado = obligatoria(metadatos, "estado");
+		puesto = obligatoria(metadatos, "puesto");
+		descripcion = obligatoria(metadatos, "descripcion");
+		fechaRegistro = obligatoria(metadatos, "fechaRegistro");
+		fechaResolucion = posicion(metadatos, "fechaResolucion");
+		resolucion = posicion(metadatos, "resolucion");
+		fechaEliminacion = posicion(metadatos, "fechaEliminacion");
+		causaEliminacion = posicion(metadatos, "causaEliminacion");
+		resultSet = rs;
+	}
+
+	/**
+	 * Posición de una columna obligatoria
+	 * @param metadatos	Metadatos del ResultSet
+	 * @param nombre	Nombre de la columna
+	 * @return	Posición de la columna, empezando en 1
+	 * @throws SQLException si la columna no está en el ResultSet
+	 */
+	private static int obligatoria(ResultSetMetaData metadatos, String nombre) throws SQLException {
+		int posicion = posicion(metadatos, nombre);
+		if (posicion == 0) {
+			throw new SQLException("Falta la columna " + nombre + " en el resultado");
+		}
+		return posicion;
+	}
+
+	/**
+	 * Posición de una columna
+	 * @param metadatos	Metadatos del ResultSet
+	 * @param nombre	Nombre de la columna
+	 * @return	Posición de la columna, empezando en 1, o 0 si no está en el ResultSet
+	 * @throws SQLException si falla la lectura de los metadatos
+	 */
+	private static int posicion(ResultSetMetaData metadatos, String nombre) throws SQLException {
+		for (int i = 1; i <= metadatos.getColumnCount(); i++) {
+			if (nombre.equalsIgnoreCase(metadatos.getColumnLabel(i))) {
+				return i;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Estado correspondiente al valor de la columna estado
+	 * @param valor	Valor de la columna
+	 * @return	El estado
+	 * @throws SQLException si el valor no es un estado conocido
+	 */
+	private static Estado estado(String valor) throws SQLException {
+		Estado estado = ESTADOS.get(valor);
+		if (estado == null) {
+			throw new SQLException("Estado de incidencia desconocido: " + valor);
+		}
+		return estado;
+	}
+}
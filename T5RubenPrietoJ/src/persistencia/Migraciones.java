@@ -0,0 +1,402 @@
+package persistencia;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import dominio.Estado;
+
+/**
+ * Clase que mantiene el esquema de la base de datos al día con migraciones numeradas.
+ * <p>
+ * El volcado {@code bd_incidencias} solo trae las tablas con su clave primaria. Cada cambio
+ * posterior del esquema es una {@link Migracion} con un número de versión; las aplicadas se
+ * guardan en la tabla {@code version_esquema} y al arrancar se aplican, en orden, las que
+ * falten. Los pasos se pueden repetir sin efecto (las tablas con IF NOT EXISTS y los índices
+ * solo si no existen), así que una migración que se corta a medias se vuelve a aplicar
+ * entera en el siguiente arranque. Mientras se migra se toma el bloqueo con nombre
+ * {@code incidencias.migraciones} para que dos instancias que arrancan a la vez no apliquen
+ * la misma migración.
+ * <p>
+ * La migración 7, que pasa a la tabla única, solo se aplica si se pide con
+ * {@code -Dincidencias.almacenamiento=unica}. Una vez aplicada, el modo de almacenamiento lo
+ * dice el esquema y no la propiedad: toda instancia que vea la versión 7 en
+ * {@code version_esquema} trabaja con la tabla única, aunque arranque sin la propiedad.
+ */
+public class Migraciones {
+	private static final String BLOQUEO = "incidencias.migraciones";
+	/**
+	 * Segundos que se espera el bloqueo de migraciones si lo tiene otra instancia
+	 */
+	private static final int ESPERA_BLOQUEO_S = Integer.getInteger("incidencias.migraciones.esperaS", 60);
+	/**
+	 * Si se pide pasar a la tabla única ({@code -Dincidencias.almacenamiento=unica})
+	 */
+	private static final boolean PASAR_A_TABLA_UNICA = "unica".equalsIgnoreCase(System.getProperty("incidencias.almacenamiento", "tablas"));
+	/**
+	 * Versión de la migración que pasa a la tabla única
+	 */
+	private static final int VERSION_TABLA_UNICA = 7;
+	/**
+	 * Número máximo de identificadores repetidos que se muestran al parar la migración 7
+	 */
+	private static final int MAXIMO_DUPLICADOS = 50;
+	private static final String SQL_CREAR_VERSIONES = "CREATE TABLE IF NOT EXISTS version_esquema ("
+			+ "version INT NOT NULL PRIMARY KEY, descripcion VARCHAR(255) NOT NULL, aplicada DATETIME NOT NULL) ENGINE=InnoDB";
+	/**
+	 * Tabla única de incidencias: las columnas de resolución y de eliminación solo tienen valor
+	 * en las incidencias de ese estado. Los índices empiezan por el estado porque todas las
+	 * consultas llegan por las vistas, que filtran por él. Tiene también el índice de la
+	 * migración 9, que puede estar ya apuntada cuando se aplica la 7 y no volvería a crearlo.
+	 */
+	private static final String SQL_CREAR_INCIDENCIAS = "CREATE TABLE IF NOT EXISTS " + IncidenciasDAO.TABLA_INCIDENCIAS + " ("
+			+ "identificador VARCHAR(255) NOT NULL PRIMARY KEY, estado VARCHAR(50) NOT NULL, puesto INT NOT NULL, "
+			+ "descripcion TEXT NOT NULL, fechaRegistro DATE NOT NULL, fechaResolucion DATE NULL, resolucion TEXT NULL, "
+			+ "fechaEliminacion DATE NULL, causaEliminacion TEXT NULL, "
+			+ "INDEX idx_estado_fecha_registro (estado, fechaRegistro), "
+			+ "INDEX idx_estado_fecha_resolucion (estado, fechaResolucion, fechaRegistro), "
+			+ "INDEX idx_fecha_resolucion_orden (estado, fechaResolucion), "
+			+ "INDEX idx_estado_fecha_eliminacion (estado, fechaEliminacion), "
+			+ "INDEX idx_estado_puesto (estado, puesto)"
+			+ ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_general_ci";
+	private static final String SQL_TIPO_TABLA = "SELECT TABLE_TYPE FROM information_schema.TABLES "
+			+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+	private static final String SQL_EXISTE_INDICE = "SELECT COUNT(*) FROM information_schema.STATISTICS "
+			+ "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND INDEX_NAME = ?";
+
+	/**
+	 * Migraciones del esquema, de menor a mayor versión. Una migración ya publicada no se
+	 * cambia: los cambios nuevos van en una migración nueva con la siguiente versión.
+	 */
+	private static final List<Migracion> MIGRACIONES = migraciones();
+
+	private static List<Migracion> migraciones() {
+		List<Migracion> migraciones = new ArrayList<>(List.of(
+				new Migracion(1, "Tabla de secuencias diarias de códigos de incidencia",
+						sql(IncidenciasDAO.SQL_CREAR_SECUENCIA),
+						sql(IncidenciasDAO.SQL_INICIALIZAR_SECUENCIA)),
+				// Antes de las transiciones atómicas las filas copiadas arrastraban el estado 'Pendiente'
+				new Migracion(2, "Estado de las incidencias resueltas y eliminadas",
+						sql("UPDATE incidencias_resueltas SET estado = '" + Estado.Resuelta + "' WHERE estado <> '" + Estado.Resuelta + "'"),
+						sql("UPDATE incidencias_eliminadas SET estado = '" + Estado.Eliminada + "' WHERE estado <> '" + Estado.Eliminada + "'")),
+				// Recorridos y páginas por (fechaRegistro, identificador): InnoDB añade la clave
+				// primaria a cada índice secundario, así que con la fecha basta para no ordenar
+				new Migracion(3, "Índices por fecha de registro",
+						indice("incidencias_pendientes", "idx_fecha_registro", "INDEX", "fechaRegistro"),
+						indice("incidencias_resueltas", "idx_fecha_registro", "INDEX", "fechaRegistro"),
+						indice("incidencias_eliminadas", "idx_fecha_registro", "INDEX", "fechaRegistro")),
+				// Exportación y cuentas por día filtran y ordenan por la fecha de cada estado. El de
+				// resoluciones lleva también la de registro para que el histograma de días hasta la
+				// resolución (DATEDIFF) no lea la fila; por eso no sirve para ordenar por fecha de
+				// resolución e identificador, que lo hace el índice de la migración 9
+				new Migracion(4, "Índices por fecha de resolución y de eliminación",
+						indice("incidencias_resueltas", "idx_fecha_resolucion", "INDEX", "fechaResolucion, fechaRegistro"),
+						indice("incidencias_eliminadas", "idx_fecha_eliminacion", "INDEX", "fechaEliminacion")),
+				// Cuentas por puesto con GROUP BY puesto
+				new Migracion(5, "Índices por puesto",
+						indice("incidencias_pendientes", "idx_puesto", "INDEX", "puesto"),
+						indice("incidencias_resueltas", "idx_puesto", "INDEX", "puesto"),
+						indice("incidencias_eliminadas", "idx_puesto", "INDEX", "puesto")),
+				new Migracion(6, "Índices FULLTEXT para la búsqueda por palabras",
+						indice(IncidenciasDAO.tabla(Estado.Pendiente), BusquedaDAO.INDICE_TEXTO, "FULLTEXT", BusquedaDAO.columnasTexto(Estado.Pendiente)),
+						indice(IncidenciasDAO.tabla(Estado.Resuelta), BusquedaDAO.INDICE_TEXTO, "FULLTEXT", BusquedaDAO.columnasTexto(Estado.Resuelta)),
+						indice(IncidenciasDAO.tabla(Estado.Eliminada), BusquedaDAO.INDICE_TEXTO, "FULLTEXT", BusquedaDAO.columnasTexto(Estado.Eliminada)))));
+		// Solo se pasa a la tabla única si se ha pedido
+		if (PASAR_A_TABLA_UNICA) {
+			migraciones.add(new Migracion(VERSION_TABLA_UNICA, "Tabla única de incidencias con vistas para las tablas por estado",
+					sql(SQL_CREAR_INCIDENCIAS),
+					comprobarDuplicados(),
+					aTablaUnica(Estado.Pendiente),
+					aTablaUnica(Estado.Resuelta),
+					aTablaUnica(Estado.Eliminada),
+					indice(IncidenciasDAO.TABLA_INCIDENCIAS, BusquedaDAO.INDICE_TEXTO, "FULLTEXT", BusquedaDAO.columnasTexto(Estado.Pendiente)),
+					indice(IncidenciasDAO.TABLA_INCIDENCIAS, BusquedaDAO.INDICE_TEXTO + "_resolucion", "FULLTEXT", BusquedaDAO.columnasTexto(Estado.Resuelta)),
+					indice(IncidenciasDAO.TABLA_INCIDENCIAS, BusquedaDAO.INDICE_TEXTO + "_eliminacion", "FULLTEXT", BusquedaDAO.columnasTexto(Estado.Eliminada))));
+		}
+		// Cada transición entre tablas en una sola llamada en lugar de INSERT, DELETE y la transacción por separado
+		migraciones.add(new Migracion(8, "Procedimientos de las transiciones entre tablas",
+				procedimiento(IncidenciasDAO.PROCEDIMIENTO_RESOLVER, Estado.Pendiente, Estado.Resuelta, "fechaResolucion, resolucion"),
+				procedimiento(IncidenciasDAO.PROCEDIMIENTO_ELIMINAR, Estado.Pendiente, Estado.Eliminada, "fechaEliminacion, causaEliminacion"),
+				procedimiento(IncidenciasDAO.PROCEDIMIENTO_DEVOLVER, Estado.Resuelta, Estado.Pendiente, null)));
+		// Recorridos de resueltas por (fechaResolucion, identificador), como la exportación: con
+		// la clave primaria detrás el índice da ese orden sin ordenar las filas
+		migraciones.add(new Migracion(9, "Índice por fecha de resolución para ordenar las resueltas",
+				indiceEstado(Estado.Resuelta, "idx_fecha_resolucion_orden", "fechaResolucion")));
+		return migraciones;
+	}
+
+	/**
+	 * Indica si ya se han aplicado las migraciones en este proceso
+	 */
+	private static volatile boolean aplicadas;
+	/**
+	 * Si el esquema usa la tabla única, o null mientras no se ha leído
+	 */
+	private static volatile Boolean tablaUnica;
+
+	/**
+	 * Aplica en orden las migraciones que falten en la base de datos.
+	 *
+	 * @param con La conexión a la base de datos
+	 * @return El número de migraciones aplicadas
+	 * @throws SQLException si no se obtiene el bloqueo a tiempo o falla alguna migración; las anteriores quedan aplicadas
+	 */
+	public static int aplicar(Connection con) throws SQLException {
+		Integer bloqueado = EjecutorSQL.consultarUno(con, "SELECT GET_LOCK(?, ?)", rs -> rs.getInt(1), BLOQUEO, ESPERA_BLOQUEO_S);
+		if (bloqueado == null || bloqueado != 1) {
+			throw new SQLException("No se ha obtenido el bloqueo de migraciones en " + ESPERA_BLOQUEO_S + " s");
+		}
+		try {
+			try (Statement sentencia = con.createStatement()) {
+				sentencia.executeUpdate(SQL_CREAR_VERSIONES);
+			}
+			Set<Integer> hechas = new HashSet<>(EjecutorSQL.consultarLista(con, "SELECT version FROM version_esquema", rs -> rs.getInt(1)));
+			int total = 0;
+			for (Migracion migracion : MIGRACIONES) {
+				if (hechas.contains(migracion.version)) {
+					continue;
+				}
+				for (Paso paso : migracion.pasos) {
+					paso.aplicar(con);
+				}
+				EjecutorSQL.actualizar(con, "INSERT INTO version_esquema (version, descripcion, aplicada) VALUES (?, ?, ?)",
+						migracion.version, migracion.descripcion, Timestamp.valueOf(LocalDateTime.now()));
+				System.out.println("Migración " + migracion.version + " aplicada: " + migracion.descripcion);
+				hechas.add(migracion.version);
+				total++;
+			}
+			tablaUnica = hechas.contains(VERSION_TABLA_UNICA);
+			aplicadas = true;
+			return total;
+		} finally {
+			EjecutorSQL.consultarUno(con, "SELECT RELEASE_LOCK(?)", rs -> rs.getInt(1), BLOQUEO);
+		}
+	}
+
+	/**
+	 * Aplica las migraciones la primera vez que se llama en el proceso; lo usan las
+	 * operaciones que necesitan algo del esquema que no está en el volcado original.
+	 *
+	 * @param con La conexión a la base de datos
+	 * @throws SQLException si falla alguna migración
+	 */
+	static void asegurar(Connection con) throws SQLException {
+		if (aplicadas) {
+			return;
+		}
+		synchronized (Migraciones.class) {
+			if (!aplicadas) {
+				aplicar(con);
+			}
+		}
+	}
+
+	/**
+	 * Indica si el esquema usa la tabla única, es decir, si tiene aplicada la migración 7. Se
+	 * lee de {@code version_esquema} la primera vez y se recuerda para el resto del proceso;
+	 * sin esa tabla el esquema es el de las tres tablas.
+	 *
+	 * @param con La conexión a la base de datos
+	 * @return true si las incidencias están en la tabla única
+	 * @throws SQLException si falla la consulta
+	 */
+	static boolean usaTablaUnica(Connection con) throws SQLException {
+		Boolean unica = tablaUnica;
+		if (unica == null) {
+			Integer existe = EjecutorSQL.consultarUno(con, SQL_TIPO_TABLA, rs -> 1, "version_esquema");
+			Integer aplicada = existe == null ? null : EjecutorSQL.consultarUno(con,
+					"SELECT COUNT(*) FROM version_esquema WHERE version = ?", rs -> rs.getInt(1), VERSION_TABLA_UNICA);
+			unica = aplicada != null && aplicada > 0;
+			tablaUnica = unica;
+		}
+		return unica;
+	}
+
+	/**
+	 * Getter de la versión más reciente del esquema que conoce la aplicación
+	 * @return La última versión
+	 */
+	public static int getUltimaVersion() {
+		return MIGRACIONES.get(MIGRACIONES.size() - 1).version;
+	}
+
+	private static Paso sql(String sql) {
+		return con -> {
+			try (Statement sentencia = con.createStatement()) {
+				sentencia.executeUpdate(sql);
+			}
+		};
+	}
+
+	/**
+	 * Paso que crea un índice si la tabla no tiene ya uno con ese nombre
+	 * @param tabla		Tabla del índice
+	 * @param nombre	Nombre del índice
+	 * @param tipo		INDEX o FULLTEXT
+	 * @param columnas	Columnas separadas por comas
+	 * @return El paso
+	 */
+	private static Paso indice(String tabla, String nombre, String tipo, String columnas) {
+		return con -> {
+			Integer existe = EjecutorSQL.consultarUno(con, SQL_EXISTE_INDICE, rs -> rs.getInt(1), tabla, nombre);
+			if (existe == null || existe == 0) {
+				try (Statement sentencia = con.createStatement()) {
+					sentencia.executeUpdate("ALTER TABLE " + tabla + " ADD " + tipo + " " + nombre + " (" + columnas + ")");
+				}
+			}
+		};
+	}
+
+	/**
+	 * Paso que crea un índice sobre las incidencias de un estado: en su tabla si todavía es
+	 * una tabla o, si ya es la vista sobre la tabla única, en {@code incidencias} con el
+	 * estado delante de las columnas
+	 * @param estado	Estado de las incidencias
+	 * @param nombre	Nombre del índice
+	 * @param columnas	Columnas separadas por comas
+	 * @return El paso
+	 */
+	private static Paso indiceEstado(Estado estado, String nombre, String columnas) {
+		String tabla = IncidenciasDAO.tabla(estado);
+		return con -> {
+			String tipo = EjecutorSQL.consultarUno(con, SQL_TIPO_TABLA, rs -> rs.getString(1), tabla);
+			if ("VIEW".equals(tipo)) {
+				indice(IncidenciasDAO.TABLA_INCIDENCIAS, nombre, "INDEX", "estado, " + columnas).aplicar(con);
+			} else {
+				indice(tabla, nombre, "INDEX", columnas).aplicar(con);
+			}
+		};
+	}
+
+	/**
+	 * Paso que crea el procedimiento de una transición entre tablas. El procedimiento copia la
+	 * fila con un INSERT ... SELECT y la borra de la tabla de origen en una transacción propia,
+	 * que deshace si alguno de los dos pasos no afecta a una fila o si hay cualquier error, y
+	 * devuelve una fila con 1 si ha movido la incidencia o 0 si no estaba en el origen.
+	 * @param nombre	Nombre del procedimiento
+	 * @param origen	Estado de la tabla de origen
+	 * @param destino	Estado de la tabla de destino
+	 * @param extras	Columnas de fecha y texto del destino que se rellenan con los parámetros
+	 * 					{@code p_fecha} y {@code p_texto}, o null si no tiene
+	 * @return El paso
+	 */
+	private static Paso procedimiento(String nombre, Estado origen, Estado destino, String extras) {
+		String columnas = "identificador, estado, puesto, descripcion, fechaRegistro";
+		String valores = "identificador, '" + destino + "', puesto, descripcion, fechaRegistro";
+		String parametros = "IN p_identificador VARCHAR(255)";
+		if (extras != null) {
+			columnas += ", " + extras;
+			valores += ", p_fecha, p_texto";
+			parametros += ", IN p_fecha DATE, IN p_texto TEXT";
+		}
+		String tablaOrigen = IncidenciasDAO.tabla(origen);
+		String crear = "CREATE PROCEDURE " + nombre + " (" + parametros + ") BEGIN "
+				+ "DECLARE movida INT DEFAULT 0; "
+				+ "DECLARE EXIT HANDLER FOR SQLEXCEPTION BEGIN ROLLBACK; RESIGNAL; END; "
+				+ "START TRANSACTION; "
+				+ "INSERT INTO " + IncidenciasDAO.tabla(destino) + " (" + columnas + ") SELECT " + valores
+				+ " FROM " + tablaOrigen + " WHERE identificador = p_identificador; "
+				+ "IF ROW_COUNT() = 1 THEN "
+				+ "DELETE FROM " + tablaOrigen + " WHERE identificador = p_identificador; "
+				+ "SET movida = ROW_COUNT(); "
+				+ "END IF; "
+				+ "IF movida = 1 THEN COMMIT; ELSE ROLLBACK; END IF; "
+				+ "SELECT movida; "
+				+ "END";
+		return con -> {
+			try (Statement sentencia = con.createStatement()) {
+				sentencia.executeUpdate("DROP PROCEDURE IF EXISTS " + nombre);
+				sentencia.executeUpdate(crear);
+			}
+		};
+	}
+
+	/**
+	 * Paso que comprueba, antes de pasar ninguna tabla a la tabla única, que ningún
+	 * identificador está en más de un estado entre las tablas por estado que quedan y las filas
+	 * ya copiadas a {@code incidencias}. Si hay alguno la migración se para con la lista, para
+	 * resolverlos a mano, en lugar de quedarse con una de las filas y perder las otras.
+	 * @return El paso
+	 */
+	private static Paso comprobarDuplicados() {
+		return con -> {
+			StringBuilder todas = new StringBuilder("SELECT identificador, estado FROM ").append(IncidenciasDAO.TABLA_INCIDENCIAS);
+			for (Estado estado : Estado.values()) {
+				String tabla = IncidenciasDAO.tabla(estado);
+				String tipo = EjecutorSQL.consultarUno(con, SQL_TIPO_TABLA, rs -> rs.getString(1), tabla);
+				if ("BASE TABLE".equals(tipo)) {
+					todas.append(" UNION ALL SELECT identificador, '").append(estado).append("' FROM ").append(tabla);
+				}
+			}
+			List<String> duplicados = EjecutorSQL.consultarLista(con, "SELECT identificador FROM (" + todas
+					+ ") todas GROUP BY identificador HAVING COUNT(DISTINCT estado) > 1 ORDER BY identificador LIMIT "
+					+ (MAXIMO_DUPLICADOS + 1), rs -> rs.getString(1));
+			if (!duplicados.isEmpty()) {
+				String lista = String.join(", ", duplicados.subList(0, Math.min(duplicados.size(), MAXIMO_DUPLICADOS)));
+				throw new SQLException("No se puede pasar a la tabla única: hay identificadores en más de una tabla de incidencias: "
+						+ lista + (duplicados.size() > MAXIMO_DUPLICADOS ? " y más" : ""));
+			}
+		};
+	}
+
+	/**
+	 * Paso que pasa las incidencias de un estado a la tabla única: si su tabla todavía es una
+	 * tabla, copia sus filas a {@code incidencias} (menos las que ya copió una migración
+	 * interrumpida; {@link #comprobarDuplicados()} ha comprobado que no hay otras) y la renombra con el sufijo {@code _antigua}
+	 * (se puede borrar cuando se haya comprobado la migración); después crea en su lugar la
+	 * vista con el mismo nombre y columnas. La vista se puede actualizar, así que las consultas
+	 * y las inserciones sobre el nombre de antes siguen funcionando.
+	 * @param estado Estado de las incidencias
+	 * @return El paso
+	 */
+	private static Paso aTablaUnica(Estado estado) {
+		String tabla = IncidenciasDAO.tabla(estado);
+		String columnas = switch (estado) {
+			case Pendiente -> "identificador, estado, puesto, descripcion, fechaRegistro";
+			case Resuelta -> "identificador, estado, puesto, descripcion, fechaRegistro, fechaResolucion, resolucion";
+			case Eliminada -> "identificador, estado, puesto, descripcion, fechaRegistro, fechaEliminacion, causaEliminacion";
+		};
+		return con -> {
+			String tipo = EjecutorSQL.consultarUno(con, SQL_TIPO_TABLA, rs -> rs.getString(1), tabla);
+			try (Statement sentencia = con.createStatement()) {
+				if ("BASE TABLE".equals(tipo)) {
+					sentencia.executeUpdate("INSERT INTO " + IncidenciasDAO.TABLA_INCIDENCIAS + " (" + columnas + ") SELECT "
+							+ columnas.replace("estado", "'" + estado + "'") + " FROM " + tabla + " t WHERE NOT EXISTS (SELECT 1 FROM "
+							+ IncidenciasDAO.TABLA_INCIDENCIAS + " i WHERE i.identificador = t.identificador)");
+					sentencia.executeUpdate("RENAME TABLE " + tabla + " TO " + tabla + "_antigua");
+				}
+				sentencia.executeUpdate("CREATE OR REPLACE VIEW " + tabla + " AS SELECT " + columnas + " FROM "
+						+ IncidenciasDAO.TABLA_INCIDENCIAS + " WHERE estado = '" + estado + "' WITH CHECK OPTION");
+			}
+		};
+	}
+
+	/**
+	 * Paso de una migración
+	 */
+	@FunctionalInterface
+	private interface Paso {
+		void aplicar(Connection con) throws SQLException;
+	}
+
+	/**
+	 * Cambio del esquema con su versión
+	 */
+	private static final class Migracion {
+		private final int version;
+		private final String descripcion;
+		private final List<Paso> pasos;
+
+		private Migracion(int version, String descripcion, Paso... pasos) {
+			this.version = version;
+			this.descripcion = descripcion;
+			this.pasos = List.of(pasos);
+		}
+	}
+}
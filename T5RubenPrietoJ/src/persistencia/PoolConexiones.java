@@ -0,0 +1,536 @@
+package persistencia;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import monitorizacion.Metricas;
+import monitorizacion.MetricasOperacion;
+
+/**
+ * Pool acotado de conexiones a la base de datos.
+ * <p>
+ * Mantiene entre un mínimo y un máximo de conexiones físicas abiertas y las presta
+ * envueltas en un proxy cuyo {@code close()} devuelve la conexión al pool en lugar de
+ * cerrarla. Valida las conexiones que llevan tiempo sin usarse antes de prestarlas,
+ * cierra las que superan el tiempo máximo de inactividad, avisa de las conexiones
+ * prestadas durante demasiado tiempo (posibles fugas) y lleva métricas de la espera
+ * para obtener una conexión. El aviso de fuga solo lleva la pila del punto en que se prestó
+ * la conexión con {@code -Dincidencias.pool.trazaFugas=true}, porque capturarla en cada
+ * préstamo es caro.
+ * <p>
+ * Cada conexión física guarda sus sentencias preparadas en una {@link CacheSentencias},
+ * de modo que se reutilizan entre préstamos.
+ */
+public class PoolConexiones {
+	/**
+	 * Tiempo de inactividad a partir del cual se valida una conexión antes de prestarla
+	 */
+	private static final long VALIDAR_TRAS_MS = 500;
+	/**
+	 * Segundos que se espera como máximo a que la base de datos responda a la validación
+	 */
+	private static final int SEGUNDOS_VALIDACION = 2;
+	/**
+	 * Contador para asignar un identificador a cada conexión física
+	 */
+	private static final AtomicLong SECUENCIA_CONEXIONES = new AtomicLong();
+	/**
+	 * Indica si se guarda la pila de cada préstamo para mostrarla en el aviso de fuga
+	 */
+	private static final boolean TRAZA_FUGAS = Boolean.getBoolean("incidencias.pool.trazaFugas");
+	/**
+	 * Métricas de la obtención de conexiones: latencia de la espera y tiempos agotados como errores
+	 */
+	private static final MetricasOperacion METRICAS_OBTENER = Metricas.operacion("PoolConexiones.obtenerConexion");
+
+	private final String url;
+	private final String usuario;
+	private final String password;
+	private final int minimo;
+	private final int maximo;
+	private final long esperaMaximaMs;
+	private final long inactividadMaximaMs;
+	private final long umbralFugaMs;
+	private final int sentenciasPorConexion;
+
+	/**
+	 * Permisos que limitan el número de conexiones prestadas a la vez
+	 */
+	private final Semaphore permisos;
+	/**
+	 * Conexiones físicas libres, la más recientemente devuelta primero
+	 */
+	private final Deque<ConexionFisica> libres = new ArrayDeque<>();
+	/**
+	 * Conexiones físicas actualmente prestadas
+	 */
+	private final Set<ConexionFisica> prestadas = ConcurrentHashMap.newKeySet();
+	/**
+	 * Tarea periódica de expulsión de conexiones inactivas y detección de fugas
+	 */
+	private final ScheduledExecutorService mantenimiento;
+	private volatile boolean cerrado;
+
+	// Métricas
+	private final LongAdder prestamos = new LongAdder();
+	private final LongAdder esperaTotalNanos = new LongAdder();
+	private final LongAccumulator esperaMaximaNanos = new LongAccumulator(Math::max, 0);
+	private final LongAdder tiemposAgotados = new LongAdder();
+	private final LongAdder conexionesCreadas = new LongAdder();
+	private final LongAdder conexionesDestruidas = new LongAdder();
+	private final LongAdder fugasDetectadas = new LongAdder();
+	private final LongAdder sentenciasReutilizadas = new LongAdder();
+	private final LongAdder sentenciasPreparadas = new LongAdder();
+
+	/**
+	 * Constructor del pool
+	 * @param url					URL JDBC de la base de datos
+	 * @param usuario				Usuario de la base de datos
+	 * @param password				Contraseña del usuario
+	 * @param minimo				Número mínimo de conexiones abiertas
+	 * @param maximo				Número máximo de conexiones abiertas
+	 * @param esperaMaximaMs		Tiempo máximo de espera para obtener una conexión
+	 * @param inactividadMaximaMs	Tiempo de inactividad tras el que se cierra una conexión sobrante
+	 * @param umbralFugaMs			Tiempo prestada tras el que se avisa de una posible fuga (0 para desactivar)
+	 * @param sentenciasPorConexion	Número máximo de sentencias preparadas guardadas por conexión
+	 */
+	public PoolConexiones(String url, String usuario, String password, int minimo, int maximo,
+			long esperaMaximaMs, long inactividadMaximaMs, long umbralFugaMs, int sentenciasPorConexion) {
+		if (minimo < 0 || maximo < 1 || minimo > maximo) {
+			throw new IllegalArgumentException("Tamaño de pool no válido: min=" + minimo + ", max=" + maximo);
+		}
+		this.url = url;
+		this.usuario = usuario;
+		this.password = password;
+		this.minimo = minimo;
+		this.maximo = maximo;
+		this.esperaMaximaMs = esperaMaximaMs;
+		this.inactividadMaximaMs = inactividadMaximaMs;
+		this.umbralFugaMs = umbralFugaMs;
+		this.sentenciasPorConexion = sentenciasPorConexion;
+		this.permisos = new Semaphore(maximo, true);
+		this.mantenimiento = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread hilo = new Thread(r, "pool-conexiones-mantenimiento");
+			hilo.setDaemon(true);
+			return hilo;
+		});
+		long periodo = Math.max(1000, Math.min(inactividadMaximaMs, umbralFugaMs > 0 ? umbralFugaMs : Long.MAX_VALUE) / 2);
+		mantenimiento.scheduleWithFixedDelay(this::mantener, periodo, periodo, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Presta una conexión del pool. Al cerrarla se devuelve al pool.
+	 *
+	 * @return La conexión prestada
+	 * @throws SQLException si no se obtiene una conexión en el tiempo máximo de espera o falla la conexión
+	 */
+	public Connection obtenerConexion() throws SQLException {
+		if (cerrado) {
+			throw new SQLException("El pool de conexiones está cerrado");
+		}
+		long inicio = System.nanoTime();
+		try {
+			if (!permisos.tryAcquire(esperaMaximaMs, TimeUnit.MILLISECONDS)) {
+				tiemposAgotados.increment();
+				METRICAS_OBTENER.error(inicio);
+				throw new SQLException("No hay conexiones libres tras esperar " + esperaMaximaMs + " ms");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			METRICAS_OBTENER.error(inicio);
+			throw new SQLException("Interrumpido esperando una conexión", e);
+		}
+		try {
+			ConexionFisica conexion = prestarLibreValida();
+			if (conexion == null) {
+				conexion = crear();
+			}
+			long espera = System.nanoTime() - inicio;
+			prestamos.increment();
+			esperaTotalNanos.add(espera);
+			esperaMaximaNanos.accumulate(espera);
+			METRICAS_OBTENER.registrar(inicio, 0);
+			conexion.prestadaDesde = System.currentTimeMillis();
+			conexion.origen = umbralFugaMs > 0 && TRAZA_FUGAS ? new Throwable("Conexión prestada aquí") : null;
+			conexion.fugaAvisada = false;
+			prestadas.add(conexion);
+			return conexion.nuevoPrestamo();
+		} catch (SQLException | RuntimeException e) {
+			permisos.release();
+			METRICAS_OBTENER.error(inicio);
+			throw e;
+		}
+	}
+
+	/**
+	 * Saca conexiones libres hasta encontrar una válida
+	 * @return Conexión válida o null si no queda ninguna libre
+	 */
+	private ConexionFisica prestarLibreValida() {
+		while (true) {
+			ConexionFisica conexion;
+			synchronized (libres) {
+				conexion = libres.pollFirst();
+			}
+			if (conexion == null) {
+				return null;
+			}
+			if (System.currentTimeMillis() - conexion.libreDesde < VALIDAR_TRAS_MS || conexion.esValida()) {
+				return conexion;
+			}
+			destruir(conexion);
+		}
+	}
+
+	/**
+	 * Abre una nueva conexión física
+	 * @return La conexión creada
+	 * @throws SQLException si falla la conexión
+	 */
+	private ConexionFisica crear() throws SQLException {
+		Connection real = DriverManager.getConnection(url, usuario, password);
+		conexionesCreadas.increment();
+		return new ConexionFisica(real);
+	}
+
+	/**
+	 * Cierra una conexión física
+	 * @param conexion Conexión a cerrar
+	 */
+	private void destruir(ConexionFisica conexion) {
+		conexionesDestruidas.increment();
+		conexion.sentencias.cerrarTodas();
+		try {
+			conexion.real.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Devuelve al pool una conexión prestada dejando su estado como recién abierta
+	 * @param conexion Conexión devuelta
+	 */
+	private void devolver(ConexionFisica conexion) {
+		prestadas.remove(conexion);
+		conexion.origen = null;
+		conexion.sentencias.liberarTodas();
+		boolean reutilizable = !cerrado;
+		try {
+			if (conexion.real.isClosed()) {
+				reutilizable = false;
+			} else if (!conexion.real.getAutoCommit()) {
+				conexion.real.rollback();
+				conexion.real.setAutoCommit(true);
+			}
+		} catch (SQLException e) {
+			reutilizable = false;
+		}
+		if (reutilizable) {
+			conexion.libreDesde = System.currentTimeMillis();
+			synchronized (libres) {
+				libres.addFirst(conexion);
+			}
+		} else {
+			destruir(conexion);
+		}
+		permisos.release();
+	}
+
+	/**
+	 * Tarea periódica: cierra las conexiones inactivas que sobran, repone el mínimo
+	 * y avisa de las conexiones prestadas durante más tiempo del umbral de fuga.
+	 */
+	private void mantener() {
+		long ahora = System.currentTimeMillis();
+		List<ConexionFisica> caducadas = new ArrayList<>();
+		int abiertas;
+		synchronized (libres) {
+			abiertas = libres.size() + prestadas.size();
+			// Las más antiguas están al final de la cola
+			while (abiertas > minimo && !libres.isEmpty() && ahora - libres.peekLast().libreDesde > inactividadMaximaMs) {
+				caducadas.add(libres.pollLast());
+				abiertas--;
+			}
+		}
+		caducadas.forEach(this::destruir);
+
+		for (int i = abiertas; i < minimo && !cerrado; i++) {
+			try {
+				ConexionFisica conexion = crear();
+				conexion.libreDesde = ahora;
+				synchronized (libres) {
+					libres.addLast(conexion);
+				}
+			} catch (SQLException e) {
+				System.err.println("Error al reponer conexiones del pool: " + e.getMessage());
+				break;
+			}
+		}
+
+		if (umbralFugaMs > 0) {
+			for (ConexionFisica conexion : prestadas) {
+				if (!conexion.fugaAvisada && ahora - conexion.prestadaDesde > umbralFugaMs) {
+					conexion.fugaAvisada = true;
+					fugasDetectadas.increment();
+					System.err.println("Posible fuga: conexión " + conexion.id + " prestada hace "
+							+ (ahora - conexion.prestadaDesde) + " ms sin devolver");
+					Throwable origen = conexion.origen;
+					if (origen != null) {
+						origen.printStackTrace();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Cierra el pool y todas sus conexiones libres. Las prestadas se cierran al devolverse.
+	 */
+	public void cerrar() {
+		cerrado = true;
+		mantenimiento.shutdownNow();
+		List<ConexionFisica> pendientes;
+		synchronized (libres) {
+			pendientes = new ArrayList<>(libres);
+			libres.clear();
+		}
+		pendientes.forEach(this::destruir);
+	}
+
+	/**
+	 * Getter del número de conexiones prestadas en este momento
+	 * @return Conexiones prestadas
+	 */
+	public int getConexionesActivas() {
+		return prestadas.size();
+	}
+
+	/**
+	 * Getter del número de conexiones libres en este momento
+	 * @return Conexiones libres
+	 */
+	public int getConexionesLibres() {
+		synchronized (libres) {
+			return libres.size();
+		}
+	}
+
+	/**
+	 * Getter del tamaño máximo del pool
+	 * @return Número máximo de conexiones
+	 */
+	public int getMaximo() {
+		return maximo;
+	}
+
+	/**
+	 * Getter del número total de préstamos realizados
+	 * @return Préstamos realizados
+	 */
+	public long getTotalPrestamos() {
+		return prestamos.sum();
+	}
+
+	/**
+	 * Getter del tiempo medio de espera para obtener una conexión
+	 * @return Espera media en milisegundos
+	 */
+	public double getEsperaMediaMs() {
+		long total = prestamos.sum();
+		return total == 0 ? 0 : esperaTotalNanos.sum() / 1e6 / total;
+	}
+
+	/**
+	 * Getter del tiempo máximo de espera para obtener una conexión
+	 * @return Espera máxima en milisegundos
+	 */
+	public double getEsperaMaximaMs() {
+		return esperaMaximaNanos.get() / 1e6;
+	}
+
+	/**
+	 * Getter del número de peticiones que agotaron el tiempo de espera
+	 * @return Tiempos de espera agotados
+	 */
+	public long getTiemposAgotados() {
+		return tiemposAgotados.sum();
+	}
+
+	/**
+	 * Getter del número de conexiones físicas abiertas desde el inicio
+	 * @return Conexiones creadas
+	 */
+	public long getConexionesCreadas() {
+		return conexionesCreadas.sum();
+	}
+
+	/**
+	 * Getter del número de conexiones físicas cerradas desde el inicio
+	 * @return Conexiones destruidas
+	 */
+	public long getConexionesDestruidas() {
+		return conexionesDestruidas.sum();
+	}
+
+	/**
+	 * Getter del número de posibles fugas detectadas
+	 * @return Fugas detectadas
+	 */
+	public long getFugasDetectadas() {
+		return fugasDetectadas.sum();
+	}
+
+	/**
+	 * Getter del número de sentencias servidas desde la caché de sentencias
+	 * @return Sentencias reutilizadas
+	 */
+	public long getSentenciasReutilizadas() {
+		return sentenciasReutilizadas.sum();
+	}
+
+	/**
+	 * Getter del número de sentencias preparadas en las conexiones físicas
+	 * @return Sentencias preparadas
+	 */
+	public long getSentenciasPreparadas() {
+		return sentenciasPreparadas.sum();
+	}
+
+	/**
+	 * Representacion en forma de cadena de las métricas del pool
+	 * @return Una cadena con las métricas del pool
+	 */
+	@Override
+	public String toString() {
+		return String.format("Pool[activas=%d, libres=%d, max=%d, prestamos=%d, esperaMedia=%.3f ms, esperaMax=%.3f ms, "
+				+ "agotados=%d, creadas=%d, destruidas=%d, fugas=%d, sentencias=%d/%d]",
+				getConexionesActivas(), getConexionesLibres(), maximo, getTotalPrestamos(), getEsperaMediaMs(),
+				getEsperaMaximaMs(), getTiemposAgotados(), getConexionesCreadas(), getConexionesDestruidas(),
+				getFugasDetectadas(), getSentenciasReutilizadas(), getSentenciasReutilizadas() + getSentenciasPreparadas());
+	}
+
+	/**
+	 * Obtiene el número de la conexión física que hay detrás de una conexión prestada por
+	 * algún pool, para relacionar operaciones que han usado la misma conexión
+	 * @param con Conexión prestada
+	 * @return El número de la conexión física, o -1 si la conexión no es de un pool
+	 */
+	public static long getIdentificador(Connection con) {
+		con = TrazaSQL.desenvolver(con);
+		if (con != null && Proxy.isProxyClass(con.getClass())
+				&& Proxy.getInvocationHandler(con) instanceof PoolConexiones.Prestamo prestamo) {
+			return prestamo.conexion.id;
+		}
+		return -1;
+	}
+
+	/**
+	 * Conexión física gestionada por el pool
+	 */
+	private final class ConexionFisica {
+		private final long id = SECUENCIA_CONEXIONES.incrementAndGet();
+		private final Connection real;
+		private final CacheSentencias sentencias;
+		private volatile long libreDesde;
+		private volatile long prestadaDesde;
+		private volatile Throwable origen;
+		private volatile boolean fugaAvisada;
+
+		private ConexionFisica(Connection real) {
+			this.real = real;
+			this.sentencias = new CacheSentencias(real, sentenciasPorConexion, sentenciasReutilizadas, sentenciasPreparadas);
+		}
+
+		private boolean esValida() {
+			try {
+				return real.isValid(SEGUNDOS_VALIDACION);
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * Crea el proxy que se entrega en cada préstamo. Cada préstamo tiene su propio
+		 * proxy para que cerrarlo dos veces, o usarlo tras cerrarlo, no afecte al siguiente.
+		 */
+		private Connection nuevoPrestamo() {
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new Prestamo(this));
+		}
+	}
+
+	/**
+	 * Manejador del proxy de una conexión prestada
+	 */
+	private final class Prestamo implements InvocationHandler {
+		private final ConexionFisica conexion;
+		private boolean devuelta;
+
+		private Prestamo(ConexionFisica conexion) {
+			this.conexion = conexion;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+			switch (metodo.getName()) {
+				case "close" -> {
+					if (!devuelta) {
+						devuelta = true;
+						devolver(conexion);
+					}
+					return null;
+				}
+				case "isClosed" -> {
+					return devuelta || conexion.real.isClosed();
+				}
+				case "equals" -> {
+					return proxy == args[0];
+				}
+				case "hashCode" -> {
+					return System.identityHashCode(proxy);
+				}
+				case "toString" -> {
+					return "ConexionPool#" + conexion.id + (devuelta ? " (devuelta)" : "");
+				}
+				default -> {
+					if (devuelta) {
+						throw new SQLException("La conexión ya se ha devuelto al pool");
+					}
+					if (metodo.getName().equals("prepareStatement") && sentenciasPorConexion > 0) {
+						Class<?>[] tipos = metodo.getParameterTypes();
+						if (tipos.length == 1) {
+							return conexion.sentencias.preparar((Connection) proxy, (String) args[0], null);
+						}
+						if (tipos.length == 2 && tipos[1] == int.class) {
+							return conexion.sentencias.preparar((Connection) proxy, (String) args[0], (Integer) args[1]);
+						}
+					}
+					try {
+						return metodo.invoke(conexion.real, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,303 @@
+package persistencia;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import dominio.DatosIncidencia;
+import dominio.Incidencias;
+
+/**
+ * Registro diferido de incidencias pendientes con confirmación en grupo.
+ * <p>
+ * {@link #registrar(int, String)} asigna el código al momento y deja la incidencia en una
+ * cola acotada en memoria; un hilo de fondo la vuelca junto con las demás en transacciones
+ * de hasta {@code tamanoGrupo} filas, cuando se llena el grupo o cuando pasa
+ * {@code esperaMaximaMs} desde la primera, así que en una avalancha de incidencias la base de
+ * datos hace un commit (y una escritura a disco) por grupo y no por fila. Si la cola está
+ * llena quien registra espera. Al cerrarlo se vuelca todo lo que queda en la cola.
+ * <p>
+ * Los códigos se reservan de la secuencia del día por bloques de {@code bloqueCodigos}, de
+ * modo que la mayoría de los registros no van a la base de datos para obtenerlo. Los números
+ * de un bloque que no se llegan a usar (por ejemplo, al parar la aplicación) quedan sin asignar.
+ * Hay que cerrarlo al terminar para no perder las incidencias que aún están en la cola.
+ */
+public class RegistroDiferido implements AutoCloseable {
+	private final BlockingQueue<Registro> cola;
+	private final int tamanoGrupo;
+	private final long esperaMaximaMs;
+	private final int bloqueCodigos;
+	private final Thread volcador;
+	/**
+	 * Registros que han pasado la comprobación de cierre y aún no están en la cola
+	 */
+	private final AtomicInteger encolando = new AtomicInteger();
+	private final LongAdder grupos = new LongAdder();
+	private final LongAdder volcadas = new LongAdder();
+	private final LongAdder fallidas = new LongAdder();
+	private volatile boolean cerrado;
+
+	// Bloque de códigos reservado, protegido por this
+	private LocalDate diaBloque;
+	private int siguienteNumero;
+	private int ultimoNumero;
+
+	/**
+	 * Constructor con la configuración de las propiedades del sistema
+	 * {@code incidencias.diferido.capacidad} (10000), {@code .grupo} (500),
+	 * {@code .esperaMs} (50) y {@code .bloque} (100)
+	 */
+	public RegistroDiferido() {
+		this(Integer.getInteger("incidencias.diferido.capacidad", 10_000), Integer.getInteger("incidencias.diferido.grupo", 500),
+				Long.getLong("incidencias.diferido.esperaMs", 50L), Integer.getInteger("incidencias.diferido.bloque", 100));
+	}
+
+	/**
+	 * Constructor del registro diferido
+	 * @param capacidad			Número máximo de incidencias en espera de volcarse
+	 * @param tamanoGrupo		Número máximo de incidencias por transacción
+	 * @param esperaMaximaMs	Tiempo máximo que espera una incidencia a que se llene su grupo
+	 * @param bloqueCodigos		Números de la secuencia diaria que se reservan de una vez
+	 */
+	public RegistroDiferido(int capacidad, int tamanoGrupo, long esperaMaximaMs, int bloqueCodigos) {
+		this.cola = new ArrayBlockingQueue<>(capacidad);
+		this.tamanoGrupo = Math.max(1, tamanoGrupo);
+		this.esperaMaximaMs = esperaMaximaMs;
+		this.bloqueCodigos = Math.max(1, bloqueCodigos);
+		this.volcador = new Thread(this::volcar, "registro-diferido");
+		this.volcador.start();
+	}
+
+	/**
+	 * Registra una incidencia pendiente. El código se devuelve en cuanto se asigna; la
+	 * incidencia se guarda después junto con otras.
+	 *
+	 * @param puesto		El puesto asociado a la incidencia
+	 * @param descripcion	La descripción de la incidencia
+	 * @return El registro, con el código asignado y el futuro que se completa cuando está guardada
+	 * @throws SQLException si no se puede reservar el código
+	 * @throws InterruptedException si se interrumpe la espera porque la cola está llena
+	 * @throws IllegalStateException si el registro ya está cerrado
+	 */
+	public Registro registrar(int puesto, String descripcion) throws SQLException, InterruptedException {
+		encolando.incrementAndGet();
+		try {
+			if (cerrado) {
+				throw new IllegalStateException("El registro diferido está cerrado");
+			}
+			LocalDateTime ahora = LocalDateTime.now();
+			Registro registro = new Registro(siguienteCodigo(ahora), ahora.toLocalDate(), new DatosIncidencia(puesto, descripcion));
+			cola.put(registro);
+			return registro;
+		} finally {
+			encolando.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Método que asigna el siguiente código, reservando otro bloque de la secuencia del día si hace falta
+	 * @param ahora Fecha y hora de registro
+	 * @return El código
+	 * @throws SQLException si falla la reserva
+	 */
+	private synchronized String siguienteCodigo(LocalDateTime ahora) throws SQLException {
+		LocalDate dia = ahora.toLocalDate();
+		if (!dia.equals(diaBloque) || siguienteNumero > ultimoNumero) {
+			try (Connection con = ConexionBD.obtenerConexion()) {
+				ultimoNumero = IncidenciasDAO.reservarSecuencia(con, dia, bloqueCodigos);
+			}
+			siguienteNumero = ultimoNumero - bloqueCodigos + 1;
+			diaBloque = dia;
+		}
+		return Incidencias.FORMATO_CODIGO.format(ahora) + "-" + siguienteNumero++;
+	}
+
+	/**
+	 * Bucle del hilo de fondo: forma grupos y los vuelca hasta que se cierra y no queda nada
+	 */
+	private void volcar() {
+		List<Registro> grupo = new ArrayList<>(tamanoGrupo);
+		while (true) {
+			try {
+				Registro primero = cerrado ? cola.poll() : cola.poll(esperaMaximaMs, TimeUnit.MILLISECONDS);
+				if (primero == null) {
+					if (cerrado && encolando.get() == 0 && cola.isEmpty()) {
+						return;
+					}
+					continue;
+				}
+				grupo.add(primero);
+				long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(esperaMaximaMs);
+				while (grupo.size() < tamanoGrupo) {
+					cola.drainTo(grupo, tamanoGrupo - grupo.size());
+					long restante = limite - System.nanoTime();
+					if (grupo.size() >= tamanoGrupo || restante <= 0 || cerrado) {
+						break;
+					}
+					Registro siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+					if (siguiente == null) {
+						break;
+					}
+					grupo.add(siguiente);
+				}
+			} catch (InterruptedException e) {
+				// El hilo solo para cuando se cierra el registro y la cola está vacía
+			}
+			if (!grupo.isEmpty()) {
+				guardar(grupo);
+				grupo.clear();
+			}
+		}
+	}
+
+	/**
+	 * Método que guarda un grupo de incidencias, en una transacción por día de registro
+	 * @param grupo Incidencias a guardar
+	 */
+	private void guardar(List<Registro> grupo) {
+		Map<LocalDate, List<Registro>> porDia = new LinkedHashMap<>();
+		for (Registro registro : grupo) {
+			porDia.computeIfAbsent(registro.dia, d -> new ArrayList<>()).add(registro);
+		}
+		try (Connection con = ConexionBD.obtenerConexion()) {
+			for (Map.Entry<LocalDate, List<Registro>> dia : porDia.entrySet()) {
+				List<Registro> registros = dia.getValue();
+				String[] codigos = new String[registros.size()];
+				List<DatosIncidencia> datos = new ArrayList<>(registros.size());
+				for (int i = 0; i < codigos.length; i++) {
+					codigos[i] = registros.get(i).identificador;
+					datos.add(registros.get(i).datos);
+				}
+				boolean[] insertadas;
+				SQLException error = null;
+				try {
+					insertadas = IncidenciasDAO.insertarPendientes(con, codigos, datos, dia.getKey(), tamanoGrupo);
+				} catch (InsercionParcialException e) {
+					// Las de los lotes confirmados sí están guardadas
+					e.printStackTrace();
+					insertadas = e.getInsertadas();
+					error = e;
+				}
+				grupos.increment();
+				for (int i = 0; i < insertadas.length; i++) {
+					Registro registro = registros.get(i);
+					if (insertadas[i]) {
+						volcadas.increment();
+						registro.guardado.complete(null);
+					} else {
+						fallidas.increment();
+						registro.guardado.completeExceptionally(error != null ? error
+								: new SQLException("No se ha podido registrar la incidencia " + registro.identificador));
+					}
+				}
+			}
+		} catch (SQLException | RuntimeException e) {
+			e.printStackTrace();
+			for (Registro registro : grupo) {
+				if (!registro.guardado.isDone()) {
+					fallidas.increment();
+					registro.guardado.completeExceptionally(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deja de aceptar registros, vuelca los que quedan en la cola y espera a que terminen
+	 */
+	@Override
+	public void close() {
+		cerrado = true;
+		try {
+			volcador.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Getter del número de incidencias en espera de volcarse
+	 * @return Incidencias en la cola
+	 */
+	public int getEnEspera() {
+		return cola.size();
+	}
+
+	/**
+	 * Getter del número de grupos volcados
+	 * @return Grupos volcados
+	 */
+	public long getGrupos() {
+		return grupos.sum();
+	}
+
+	/**
+	 * Getter del número de incidencias guardadas
+	 * @return Incidencias guardadas
+	 */
+	public long getVolcadas() {
+		return volcadas.sum();
+	}
+
+	/**
+	 * Getter del número de incidencias que no se han podido guardar
+	 * @return Incidencias fallidas
+	 */
+	public long getFallidas() {
+		return fallidas.sum();
+	}
+
+	/**
+	 * Representacion en forma de cadena de las métricas del registro diferido
+	 * @return Una cadena con las métricas
+	 */
+	@Override
+	public String toString() {
+		return "RegistroDiferido[enEspera=" + getEnEspera() + ", grupos=" + getGrupos() + ", volcadas=" + getVolcadas()
+				+ ", fallidas=" + getFallidas() + "]";
+	}
+
+	/**
+	 * Incidencia registrada a la espera de guardarse
+	 */
+	public static final class Registro {
+		private final String identificador;
+		private final LocalDate dia;
+		private final DatosIncidencia datos;
+		private final CompletableFuture<Void> guardado = new CompletableFuture<>();
+
+		private Registro(String identificador, LocalDate dia, DatosIncidencia datos) {
+			this.identificador = identificador;
+			this.dia = dia;
+			this.datos = datos;
+		}
+
+		/**
+		 * Getter del código asignado a la incidencia
+		 * @return El código
+		 */
+		public String getIdentificador() {
+			return identificador;
+		}
+
+		/**
+		 * Getter del futuro que se completa cuando la incidencia está guardada en la base de
+		 * datos, o con la excepción si no se ha podido guardar
+		 * @return El futuro
+		 */
+		public CompletableFuture<Void> getGuardado() {
+			return guardado;
+		}
+	}
+}
@@ -0,0 +1,374 @@
+package persistencia;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import monitorizacion.EstadisticasSentencia;
+
+/**
+ * Traza de las sentencias SQL que se ejecutan con las conexiones de {@link ConexionBD}.
+ * <p>
+ * Con {@code -Dincidencias.sql.traza=true} las conexiones se entregan envueltas en un proxy
+ * que envuelve a su vez las sentencias que crean, mide cada ejecución y guarda los
+ * parámetros que se le dan. Por cada texto de sentencia se acumulan las ejecuciones, los
+ * errores y los tiempos total y máximo, que se publican por JMX, y las ejecuciones que
+ * tardan más de {@code incidencias.sql.lentaMs} milisegundos (100 por defecto) se escriben
+ * con sus parámetros en un registro de sentencias lentas que rota por tamaño
+ * ({@code incidencias.sql.fichero}, {@code incidencias.sql.tamanoFichero} y
+ * {@code incidencias.sql.ficheros}).
+ * <p>
+ * El tiempo de una consulta es el de {@code executeQuery}, sin recorrer el resultado; con
+ * {@code useCursorFetch} las filas se traen al recorrerlo y no cuentan. Sin la propiedad las
+ * conexiones se entregan tal cual y la traza no cuesta nada.
+ */
+public final class TrazaSQL {
+	/**
+	 * Indica si las conexiones se entregan envueltas
+	 */
+	public static final boolean ACTIVA = Boolean.getBoolean("incidencias.sql.traza");
+	private static final long UMBRAL_NS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("incidencias.sql.lentaMs", 100L));
+	/**
+	 * Número máximo de textos de sentencia distintos con estadísticas propias; el resto se
+	 * acumulan juntos para que las sentencias montadas a mano no hagan crecer el mapa sin límite
+	 */
+	private static final int MAXIMO_SENTENCIAS = Integer.getInteger("incidencias.sql.maxSentencias", 500);
+	private static final String OTRAS = "(otras sentencias)";
+	/**
+	 * Longitud máxima con la que se escribe cada parámetro en el registro
+	 */
+	private static final int LONGITUD_PARAMETRO = 200;
+	private static final ConcurrentMap<String, Sentencia> SENTENCIAS = new ConcurrentHashMap<>();
+
+	private TrazaSQL() {
+	}
+
+	/**
+	 * Envuelve una conexión para trazar las sentencias que se ejecuten con ella. Cerrar la
+	 * conexión envuelta cierra la original.
+	 *
+	 * @param con La conexión a envolver
+	 * @return La conexión envuelta
+	 */
+	static Connection envolver(Connection con) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConexionTrazada(con));
+	}
+
+	/**
+	 * Devuelve la conexión original de una conexión envuelta por {@link #envolver}
+	 *
+	 * @param con Una conexión, envuelta o no
+	 * @return La conexión original, o la misma si no estaba envuelta
+	 */
+	static Connection desenvolver(Connection con) {
+		if (con != null && Proxy.isProxyClass(con.getClass())
+				&& Proxy.getInvocationHandler(con) instanceof ConexionTrazada trazada) {
+			return trazada.real;
+		}
+		return con;
+	}
+
+	/**
+	 * Getter de las estadísticas de cada sentencia ejecutada
+	 * @return Estadísticas de las sentencias, de más a menos tiempo total
+	 */
+	public static List<EstadisticasSentencia> getSentencias() {
+		List<EstadisticasSentencia> estadisticas = new ArrayList<>();
+		for (Sentencia sentencia : SENTENCIAS.values()) {
+			estadisticas.add(sentencia.getEstadisticas());
+		}
+		estadisticas.sort((a, b) -> Double.compare(b.getTotalMs(), a.getTotalMs()));
+		return estadisticas;
+	}
+
+	/**
+	 * Vacía las estadísticas de las sentencias
+	 */
+	public static void reiniciar() {
+		SENTENCIAS.clear();
+	}
+
+	/**
+	 * Anota una ejecución en las estadísticas de su sentencia y, si ha sido lenta, en el registro
+	 * @param sql			Texto de la sentencia
+	 * @param parametros	Parámetros de la ejecución, o null si no tiene
+	 * @param lote			Filas del lote, o 0 si no es un lote
+	 * @param conexion		Identificador de la conexión física, o -1 si no se conoce
+	 * @param inicio		Valor de {@code System.nanoTime()} al empezar la ejecución
+	 * @param error			Excepción de la ejecución, o null si terminó bien
+	 */
+	private static void anotar(String sql, Object[] parametros, int lote, long conexion, long inicio, Throwable error) {
+		long nanos = System.nanoTime() - inicio;
+		boolean lenta = nanos >= UMBRAL_NS;
+		Sentencia sentencia = SENTENCIAS.get(sql);
+		if (sentencia == null) {
+			String clave = SENTENCIAS.size() < MAXIMO_SENTENCIAS ? sql : OTRAS;
+			sentencia = SENTENCIAS.computeIfAbsent(clave, Sentencia::new);
+		}
+		sentencia.anotar(nanos, error != null, lenta);
+		if (lenta) {
+			StringBuilder linea = new StringBuilder(sql.length() + 128);
+			linea.append(String.format(Locale.ROOT, "%.3f ms", nanos / 1e6)).append(" | conexión ").append(conexion);
+			if (lote > 0) {
+				linea.append(" | lote de ").append(lote).append(" filas");
+			}
+			if (error != null) {
+				linea.append(" | error: ").append(error);
+			}
+			linea.append(" | ").append(sql);
+			if (parametros != null) {
+				linea.append(" | parámetros ");
+				escribirParametros(linea, parametros);
+			}
+			Registro.LENTAS.log(Level.WARNING, linea.toString());
+		}
+	}
+
+	private static void escribirParametros(StringBuilder linea, Object[] parametros) {
+		linea.append('[');
+		for (int i = 0; i < parametros.length; i++) {
+			if (i > 0) {
+				linea.append(", ");
+			}
+			Object valor = parametros[i];
+			if (valor instanceof InputStream || valor instanceof Reader) {
+				linea.append('<').append(valor.getClass().getSimpleName()).append('>');
+			} else if (valor instanceof CharSequence texto) {
+				linea.append('\'');
+				if (texto.length() > LONGITUD_PARAMETRO) {
+					linea.append(texto, 0, LONGITUD_PARAMETRO).append("...");
+				} else {
+					linea.append(texto);
+				}
+				linea.append('\'');
+			} else {
+				linea.append(valor);
+			}
+		}
+		linea.append(']');
+	}
+
+	/**
+	 * Registro de sentencias lentas, creado la primera vez que hay una
+	 */
+	private static final class Registro {
+		private static final Logger LENTAS = crear();
+
+		private static Logger crear() {
+			Logger registro = Logger.getLogger("incidencias.sql.lentas");
+			try {
+				FileHandler fichero = new FileHandler(System.getProperty("incidencias.sql.fichero", "sql-lentas.%g.log"),
+						Integer.getInteger("incidencias.sql.tamanoFichero", 10 * 1024 * 1024),
+						Integer.getInteger("incidencias.sql.ficheros", 5), true);
+				fichero.setEncoding("UTF-8");
+				fichero.setFormatter(new Formatter() {
+					@Override
+					public String format(LogRecord entrada) {
+						return Instant.ofEpochMilli(entrada.getMillis()) + " | " + entrada.getMessage() + System.lineSeparator();
+					}
+				});
+				registro.addHandler(fichero);
+				registro.setUseParentHandlers(false);
+			} catch (IOException e) {
+				// Sin fichero las sentencias lentas salen por la consola
+				e.printStackTrace();
+			}
+			return registro;
+		}
+	}
+
+	/**
+	 * Estadísticas acumuladas de un texto de sentencia
+	 */
+	private static final class Sentencia {
+		private final String sql;
+		private final LongAdder ejecuciones = new LongAdder();
+		private final LongAdder errores = new LongAdder();
+		private final LongAdder lentas = new LongAdder();
+		private final LongAdder total = new LongAdder();
+		private final LongAccumulator maximo = new LongAccumulator(Math::max, 0);
+
+		private Sentencia(String sql) {
+			this.sql = sql;
+		}
+
+		private void anotar(long nanos, boolean error, boolean lenta) {
+			ejecuciones.increment();
+			total.add(nanos);
+			maximo.accumulate(nanos);
+			if (error) {
+				errores.increment();
+			}
+			if (lenta) {
+				lentas.increment();
+			}
+		}
+
+		private EstadisticasSentencia getEstadisticas() {
+			return new EstadisticasSentencia(sql, ejecuciones.sum(), errores.sum(), lentas.sum(), total.sum() / 1e6,
+					maximo.get() / 1e6);
+		}
+	}
+
+	/**
+	 * Manejador del proxy de una conexión trazada: envuelve las sentencias que crea
+	 */
+	private static final class ConexionTrazada implements InvocationHandler {
+		private final Connection real;
+		private final long id;
+
+		private ConexionTrazada(Connection real) {
+			this.real = real;
+			this.id = PoolConexiones.getIdentificador(real);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+			switch (metodo.getName()) {
+				case "equals" -> {
+					return proxy == args[0];
+				}
+				case "hashCode" -> {
+					return System.identityHashCode(proxy);
+				}
+				default -> {
+					Object resultado;
+					try {
+						resultado = metodo.invoke(real, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+					if (resultado instanceof Statement sentencia) {
+						String sql = args != null && args.length > 0 && args[0] instanceof String texto ? texto : null;
+						Class<?> tipo = resultado instanceof CallableStatement ? CallableStatement.class
+								: resultado instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+						return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { tipo },
+								new SentenciaTrazada(sentencia, (Connection) proxy, sql, id));
+					}
+					return resultado;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Manejador del proxy de una sentencia trazada: guarda los parámetros y mide las ejecuciones
+	 */
+	private static final class SentenciaTrazada implements InvocationHandler {
+		private final Statement real;
+		private final Connection conexion;
+		/**
+		 * Texto de la sentencia preparada, o null si es una sentencia normal
+		 */
+		private final String sql;
+		private final long id;
+		private Object[] parametros = new Object[0];
+		private int filasLote;
+		private String sqlLote;
+
+		private SentenciaTrazada(Statement real, Connection conexion, String sql, long id) {
+			this.real = real;
+			this.conexion = conexion;
+			this.sql = sql;
+			this.id = id;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+			String nombre = metodo.getName();
+			switch (nombre) {
+				case "getConnection" -> {
+					return conexion;
+				}
+				case "equals" -> {
+					return proxy == args[0];
+				}
+				case "hashCode" -> {
+					return System.identityHashCode(proxy);
+				}
+				case "clearParameters" -> Arrays.fill(parametros, null);
+				case "addBatch" -> {
+					filasLote++;
+					if (args != null && sqlLote == null) {
+						sqlLote = (String) args[0];
+					}
+				}
+				case "clearBatch" -> {
+					filasLote = 0;
+					sqlLote = null;
+				}
+				default -> {
+					if (nombre.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer indice
+							&& metodo.getDeclaringClass() != Statement.class) {
+						guardarParametro(indice, nombre.equals("setNull") ? null : args[1]);
+					} else if (nombre.startsWith("execute")) {
+						return ejecutar(metodo, args, nombre.equals("executeBatch") || nombre.equals("executeLargeBatch"));
+					}
+				}
+			}
+			return invocar(metodo, args);
+		}
+
+		private Object ejecutar(Method metodo, Object[] args, boolean lote) throws Throwable {
+			String texto = args != null && args.length > 0 && args[0] instanceof String propio ? propio
+					: lote && sql == null ? sqlLote : sql;
+			Object[] valores = sql != null && texto == sql ? parametros : null;
+			int filas = lote ? filasLote : 0;
+			if (lote) {
+				filasLote = 0;
+				sqlLote = null;
+			}
+			long inicio = System.nanoTime();
+			try {
+				Object resultado = invocar(metodo, args);
+				anotar(texto == null ? "(lote vacío)" : texto, valores, filas, id, inicio, null);
+				return resultado;
+			} catch (Throwable e) {
+				anotar(texto == null ? "(lote vacío)" : texto, valores, filas, id, inicio, e);
+				throw e;
+			}
+		}
+
+		private void guardarParametro(int indice, Object valor) {
+			if (indice < 1) {
+				return;
+			}
+			if (indice > parametros.length) {
+				parametros = Arrays.copyOf(parametros, indice);
+			}
+			parametros[indice - 1] = valor;
+		}
+
+		private Object invocar(Method metodo, Object[] args) throws Throwable {
+			try {
+				return metodo.invoke(real, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+}
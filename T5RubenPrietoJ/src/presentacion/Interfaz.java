@@ -8,10 +8,9 @@ import persistencia.IncidenciasDAO;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.Scanner;
 
 import aplicacion.Logica;
@@ -229,7 +228,6 @@ public class Interfaz {
             switch (opcion) {
                 case 1 -> {
                     ArrayList<String> datosIncidencia = registrarIncidencia();
-                    String codigo = IncidenciasDAO.generarCodigoIncidencia(new Date());
                     boolean resultado = IncidenciasDAO.registrarIncidencia(con, Estado.Pendiente,
                             Integer.parseInt(datosIncidencia.get(0)), datosIncidencia.get(1));
                     informaResultado(1, resultado);
@@ -249,10 +247,10 @@ public class Interfaz {
                     String identificador = identificadorIncidencia(4);
                     ArrayList<String> datosEliminacion = eliminarIncidencia();
                     try {
-                    Date fechaEliminacion = new SimpleDateFormat("dd/MM/yyyy").parse(datosEliminacion.get(0));
+                    LocalDate fechaEliminacion = LocalDate.parse(datosEliminacion.get(0), Incidencias.FORMATO_FECHA_ENTRADA);
                     boolean resultado = IncidenciasDAO.eliminarIncidencia(con, identificador, fechaEliminacion, datosEliminacion.get(1));
 					informaResultado(4, resultado);
-	                } catch (ParseException e) {
+	                } catch (DateTimeParseException e) {
 	                    e.printStackTrace();
 	                }
                 }
@@ -260,10 +258,10 @@ public class Interfaz {
                     String identificador = identificadorIncidencia(5);
                     ArrayList<String> datosResolucion = resolverIncidencia();
                     try {
-                    	Date fechaResolucion = new SimpleDateFormat("dd/MM/yyyy").parse(datosResolucion.get(0));
+                    	LocalDate fechaResolucion = LocalDate.parse(datosResolucion.get(0), Incidencias.FORMATO_FECHA_ENTRADA);
                         boolean resultado = IncidenciasDAO.resolverIncidencia(con, identificador, fechaResolucion, datosResolucion.get(1));
                         informaResultado(5, resultado);
-                    } catch (ParseException e) {
+                    } catch (DateTimeParseException e) {
                         e.printStackTrace();
                     }
                 }
@@ -278,30 +276,9 @@ public class Interfaz {
                     boolean resultado = IncidenciasDAO.devolverIncidenciasResueltas(con, identificador);
                     informaResultado(7, resultado);
                 }
-                case 8 -> {
-                    ArrayList<Incidencias> incidenciasPendientes = (ArrayList<Incidencias>) IncidenciasDAO.getIncidenciasPendientes(con);
-                    if (incidenciasPendientes.isEmpty()) {
-                        informaResultado(8, false);
-                    } else {
-                        incidenciasPendientes.forEach(System.out::println);
-                    }
-                }
-                case 9 -> {
-                    ArrayList<Incidencias> incidenciasResueltas = (ArrayList<Incidencias>) IncidenciasDAO.getIncidenciasResueltas(con);
-                    if (incidenciasResueltas.isEmpty()) {
-                        informaResultado(9, false);
-                    } else {
-                        incidenciasResueltas.forEach(System.out::println);
-                    }
-                }
-                case 10 -> {
-                    ArrayList<Incidencias> incidenciasEliminadas = (ArrayList<Incidencias>) IncidenciasDAO.getIncidenciasEliminadas(con);
-                    if (incidenciasEliminadas.isEmpty()) {
-                        informaResultado(10, false);
-                    } else {
-                        incidenciasEliminadas.forEach(System.out::println);
-                    }
-                }
+                case 8 -> RenderizadorIncidencias.consola().listarPaginado(con, Estado.Pendiente, "Listado de incidencias pendientes:", sc);
+                case 9 -> RenderizadorIncidencias.consola().listarPaginado(con, Estado.Resuelta, "Listado de incidencias resueltas:", sc);
+                case 10 -> RenderizadorIncidencias.consola().listarPaginado(con, Estado.Eliminada, "Listado de incidencias eliminadas:", sc);
                 case 11 -> salir = true;
                 default -> System.out.println("Opción no válida, por favor intente de nuevo.");
             }
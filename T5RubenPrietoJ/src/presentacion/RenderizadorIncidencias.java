@@ -0,0 +1,283 @@
+package presentacion;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import dominio.Estado;
+import dominio.Incidencias;
+import persistencia.IncidenciasDAO;
+
+/**
+ * Clase que escribe los listados de incidencias en la consola.
+ * <p>
+ * Cada incidencia se formatea en un mismo {@link StringBuilder} que se reutiliza, con las
+ * fechas escritas directamente en él, y todo sale por un único {@link BufferedWriter} que se
+ * vacía al terminar cada página, en lugar de hacer varios {@code println} por incidencia.
+ * Las incidencias se piden al DAO página a página con paginación por clave, así que nunca
+ * hay más de una página en memoria. En el listado paginado se puede ir a la página
+ * siguiente o a la anterior guardando la última incidencia de cada página ya vista. Con
+ * {@code -Dincidencias.listado.sinPausa=true} (por ejemplo, con la entrada o la salida
+ * redirigidas) se escriben todas las páginas seguidas sin preguntar.
+ */
+public class RenderizadorIncidencias {
+	/**
+	 * Número de incidencias de cada página del listado paginado
+	 */
+	private static final int TAMANO_PAGINA = Integer.getInteger("incidencias.listado.tamanoPagina", 20);
+	/**
+	 * Número de incidencias que se piden al DAO de cada vez en el listado completo
+	 */
+	private static final int TAMANO_LOTE = 500;
+	/**
+	 * Si el listado paginado escribe todas las páginas sin esperar al usuario
+	 */
+	private static final boolean SIN_PAUSA = Boolean.getBoolean("incidencias.listado.sinPausa");
+	private static final String SIN_INCIDENCIAS = "No hay incidencias en esta categoría.";
+	private static final RenderizadorIncidencias CONSOLA = new RenderizadorIncidencias(
+			new OutputStreamWriter(System.out, codificacionConsola()), TAMANO_PAGINA);
+
+	private final BufferedWriter salida;
+	private final int tamanoPagina;
+	private final StringBuilder buffer = new StringBuilder(512);
+	private char[] caracteres = new char[512];
+
+	/**
+	 * Constructor del renderizador
+	 * @param salida		Destino del texto; se le pone delante un {@link BufferedWriter}
+	 * @param tamanoPagina	Número de incidencias de cada página del listado paginado
+	 */
+	public RenderizadorIncidencias(Writer salida, int tamanoPagina) {
+		this.salida = new BufferedWriter(salida, 1 << 16);
+		this.tamanoPagina = Math.max(1, tamanoPagina);
+	}
+
+	/**
+	 * Getter del renderizador compartido que escribe en la salida estándar
+	 * @return El renderizador de la consola
+	 */
+	public static RenderizadorIncidencias consola() {
+		return CONSOLA;
+	}
+
+	/**
+	 * Método que lista las incidencias de un estado página a página, preguntando después de
+	 * cada una si se quiere ver la siguiente, la anterior o terminar. Con
+	 * {@code incidencias.listado.sinPausa} escribe todas las páginas seguidas.
+	 *
+	 * @param con			La conexión a la base de datos
+	 * @param estado		Estado de las incidencias
+	 * @param comentario	Texto que se escribe antes del listado
+	 * @param sc			Escáner del que se leen las órdenes de navegación
+	 */
+	public synchronized void listarPaginado(Connection con, Estado estado, String comentario, Scanner sc) {
+		if (SIN_PAUSA) {
+			listar(con, estado, comentario);
+			return;
+		}
+		// Última incidencia de la página anterior a cada página visitada; null para la primera
+		List<Incidencias> inicios = new ArrayList<>();
+		inicios.add(null);
+		while (true) {
+			int numero = inicios.size();
+			List<Incidencias> pagina = IncidenciasDAO.getIncidencias(con, estado, inicios.get(numero - 1), tamanoPagina + 1);
+			if (pagina.isEmpty() && numero == 1) {
+				linea(SIN_INCIDENCIAS);
+				vaciar();
+				return;
+			}
+			boolean haySiguiente = pagina.size() > tamanoPagina;
+			if (haySiguiente) {
+				pagina = pagina.subList(0, tamanoPagina);
+			}
+			buffer.setLength(0);
+			buffer.append(comentario).append(" página ").append(numero).append('\n');
+			escribirBuffer();
+			for (Incidencias incidencia : pagina) {
+				incidencia(incidencia);
+			}
+			buffer.setLength(0);
+			buffer.append('[');
+			if (haySiguiente) {
+				buffer.append("Intro: siguiente, ");
+			}
+			if (numero > 1) {
+				buffer.append("a: anterior, ");
+			}
+			buffer.append(haySiguiente ? "q: salir] " : "Intro: salir] ");
+			escribirBuffer();
+			vaciar();
+
+			if (!sc.hasNextLine()) {
+				// Fin de la entrada: no hay nadie a quien preguntar
+				return;
+			}
+			String orden = sc.nextLine().trim();
+			if (orden.equalsIgnoreCase("a") && numero > 1) {
+				inicios.remove(numero - 1);
+			} else if (orden.isEmpty() && haySiguiente) {
+				inicios.add(pagina.get(pagina.size() - 1));
+			} else if (orden.isEmpty() || orden.equalsIgnoreCase("q")) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Método que lista todas las incidencias de un estado, pidiéndolas al DAO por lotes y
+	 * vaciando la salida después de cada lote
+	 *
+	 * @param con			La conexión a la base de datos
+	 * @param estado		Estado de las incidencias
+	 * @param comentario	Texto que se escribe antes del listado
+	 * @return Número de incidencias listadas
+	 */
+	public synchronized int listar(Connection con, Estado estado, String comentario) {
+		int total = 0;
+		Incidencias despuesDe = null;
+		while (true) {
+			List<Incidencias> lote = IncidenciasDAO.getIncidencias(con, estado, despuesDe, TAMANO_LOTE);
+			if (total == 0 && !lote.isEmpty()) {
+				linea(comentario);
+			}
+			for (Incidencias incidencia : lote) {
+				incidencia(incidencia);
+			}
+			total += lote.size();
+			vaciar();
+			if (lote.size() < TAMANO_LOTE) {
+				break;
+			}
+			despuesDe = lote.get(lote.size() - 1);
+		}
+		if (total == 0) {
+			linea(SIN_INCIDENCIAS);
+			vaciar();
+		}
+		return total;
+	}
+
+	/**
+	 * Método que lista unas incidencias ya cargadas
+	 *
+	 * @param lista			Incidencias a listar
+	 * @param comentario	Texto que se escribe antes del listado
+	 */
+	public synchronized void listar(List<Incidencias> lista, String comentario) {
+		if (lista.isEmpty()) {
+			linea(SIN_INCIDENCIAS);
+		} else {
+			linea(comentario);
+			for (Incidencias incidencia : lista) {
+				incidencia(incidencia);
+			}
+		}
+		vaciar();
+	}
+
+	/**
+	 * Método que lista los códigos de las primeras incidencias de un estado, una por línea,
+	 * con una sola consulta limitada en lugar de recorrer toda la tabla
+	 *
+	 * @param con		La conexión a la base de datos
+	 * @param estado	Estado de las incidencias
+	 * @param maximo	Número máximo de códigos a listar
+	 */
+	public synchronized void listarCodigos(Connection con, Estado estado, int maximo) {
+		List<Incidencias> lote = IncidenciasDAO.getIncidencias(con, estado, null, maximo + 1);
+		for (int i = 0; i < lote.size() && i < maximo; i++) {
+			buffer.setLength(0);
+			buffer.append("Código: ").append(lote.get(i).getIdentificador()).append('\n');
+			escribirBuffer();
+		}
+		if (lote.size() > maximo) {
+			linea("...");
+		}
+		vaciar();
+	}
+
+	/**
+	 * Método que escribe una incidencia con todos sus datos, seguida de una línea en blanco
+	 * @param incidencia Incidencia a escribir
+	 */
+	public synchronized void escribir(Incidencias incidencia) {
+		incidencia(incidencia);
+		vaciar();
+	}
+
+	private void incidencia(Incidencias incidencia) {
+		buffer.setLength(0);
+		buffer.append("Código: ").append(incidencia.getIdentificador()).append('\n')
+				.append("Estado: ").append(incidencia.getEstado()).append('\n')
+				.append("Puesto: ").append(incidencia.getPuesto()).append('\n')
+				.append("Problema: ").append(incidencia.getDescripcion()).append('\n');
+		// Fecha y causa de eliminación solo para las eliminadas, fecha y resolución solo para las resueltas
+		if (incidencia.getFechaEliminacion() != null && incidencia.getCausaEliminacion() != null) {
+			buffer.append("Fecha de Eliminación: ");
+			fecha(incidencia.getFechaEliminacion());
+			buffer.append("\nCausa de Eliminación: ").append(incidencia.getCausaEliminacion()).append('\n');
+		}
+		if (incidencia.getFechaResolucion() != null && incidencia.getResolucion() != null) {
+			buffer.append("Fecha de Resolución: ");
+			fecha(incidencia.getFechaResolucion());
+			buffer.append("\nResolución: ").append(incidencia.getResolucion()).append('\n');
+		}
+		buffer.append('\n');
+		escribirBuffer();
+	}
+
+	private void fecha(LocalDate fecha) {
+		Incidencias.FORMATO_FECHA.formatTo(fecha, buffer);
+	}
+
+	private void linea(String texto) {
+		buffer.setLength(0);
+		buffer.append(texto).append('\n');
+		escribirBuffer();
+	}
+
+	/**
+	 * Pasa el contenido del buffer a la salida copiándolo en un array de caracteres que también
+	 * se reutiliza, para no crear una cadena por incidencia
+	 */
+	private void escribirBuffer() {
+		int longitud = buffer.length();
+		if (caracteres.length < longitud) {
+			caracteres = new char[Math.max(longitud, caracteres.length * 2)];
+		}
+		buffer.getChars(0, longitud, caracteres, 0);
+		try {
+			salida.write(caracteres, 0, longitud);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void vaciar() {
+		try {
+			salida.flush();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Codificación con la que escribe {@code System.out}
+	 * @return La codificación de la salida estándar
+	 */
+	private static Charset codificacionConsola() {
+		String nombre = System.getProperty("stdout.encoding", System.getProperty("sun.stdout.encoding"));
+		try {
+			return nombre != null ? Charset.forName(nombre) : Charset.defaultCharset();
+		} catch (IllegalArgumentException e) {
+			return Charset.defaultCharset();
+		}
+	}
+}
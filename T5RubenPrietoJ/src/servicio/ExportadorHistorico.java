@@ -0,0 +1,326 @@
+package servicio;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import dominio.Estado;
+import dominio.Incidencias;
+import persistencia.ConexionBD;
+import persistencia.IncidenciasDAO;
+
+/**
+ * Exportación del histórico de incidencias a CSV, JSON Lines o XML.
+ * <p>
+ * Las filas se escriben a medida que el driver las trae del cursor, así que la memoria usada
+ * no depende del número de incidencias exportadas. Se puede limitar a un intervalo de fechas
+ * (de resolución para las resueltas y de eliminación para las eliminadas) y comprimir la
+ * salida con gzip.
+ */
+public class ExportadorHistorico {
+	private static final String[] COLUMNAS = { "identificador", "estado", "puesto", "descripcion", "fechaRegistro",
+			"fechaResolucion", "resolucion", "fechaEliminacion", "causaEliminacion" };
+
+	/**
+	 * Formatos de exportación
+	 */
+	public enum Formato {
+		CSV("text/csv"), JSONL("application/x-ndjson"), XML("application/xml");
+
+		private final String tipo;
+
+		Formato(String tipo) {
+			this.tipo = tipo;
+		}
+
+		/**
+		 * Getter del tipo MIME del formato
+		 * @return El tipo MIME
+		 */
+		public String getTipo() {
+			return tipo;
+		}
+	}
+
+	private final Formato formato;
+	private final boolean gzip;
+
+	/**
+	 * Constructor del exportador
+	 * @param formato	Formato de salida
+	 * @param gzip		Si la salida se comprime con gzip
+	 */
+	public ExportadorHistorico(Formato formato, boolean gzip) {
+		this.formato = formato;
+		this.gzip = gzip;
+	}
+
+	/**
+	 * Exporta a un fichero las incidencias de un estado. Si el nombre del fichero termina en
+	 * {@code .gz} se comprime.
+	 *
+	 * @param args Estado (pendientes, resueltas o eliminadas), formato (csv, jsonl o xml),
+	 * fichero y, opcionalmente, primer y último día con el formato dd/MM/yyyy
+	 * @throws IOException si falla la escritura
+	 * @throws SQLException si falla la consulta
+	 */
+	public static void main(String[] args) throws IOException, SQLException {
+		if (args.length < 3 || args.length > 5) {
+			System.out.println("Uso: ExportadorHistorico <pendientes|resueltas|eliminadas> <csv|jsonl|xml> <fichero> [desde] [hasta]");
+			return;
+		}
+		Estado estado = estado(args[0]);
+		Formato formato = Formato.valueOf(args[1].toUpperCase(Locale.ROOT));
+		LocalDate desde = args.length > 3 ? LocalDate.parse(args[3], Incidencias.FORMATO_FECHA_ENTRADA) : null;
+		LocalDate hasta = args.length > 4 ? LocalDate.parse(args[4], Incidencias.FORMATO_FECHA_ENTRADA) : null;
+		ExportadorHistorico exportador = new ExportadorHistorico(formato, args[2].endsWith(".gz"));
+		try (Connection con = ConexionBD.obtenerConexion();
+			 OutputStream salida = Files.newOutputStream(Path.of(args[2]))) {
+			int total = exportador.exportar(con, estado, desde, hasta, salida);
+			System.out.println("Se han exportado " + total + " incidencias a " + args[2]);
+		} finally {
+			ConexionBD.cerrarPool();
+		}
+	}
+
+	/**
+	 * Escribe las incidencias de un estado en la salida indicada, que no se cierra. Si falla
+	 * la consulta o la escritura no se termina el formato ni el gzip, de modo que la salida
+	 * queda visiblemente incompleta en lugar de parecer una exportación más corta
+	 * @param con		Conexión a la base de datos
+	 * @param estado	Estado de las incidencias
+	 * @param desde		Primer día incluido, o null para no poner límite
+	 * @param hasta		Último día incluido, o null para no poner límite
+	 * @param salida	Salida en la que se escribe
+	 * @return El número de incidencias exportadas
+	 * @throws IOException si falla la escritura
+	 * @throws SQLException si falla la consulta
+	 */
+	public int exportar(Connection con, Estado estado, LocalDate desde, LocalDate hasta, OutputStream salida)
+			throws IOException, SQLException {
+		OutputStream destino = new NoCerrar(salida);
+		if (gzip) {
+			destino = new GZIPOutputStream(destino, 64 * 1024);
+		}
+		Writer texto = new BufferedWriter(new OutputStreamWriter(
+				gzip ? destino : new BufferedOutputStream(destino, 64 * 1024), StandardCharsets.UTF_8), 64 * 1024);
+		try {
+			Escritor escritor = switch (formato) {
+				case CSV -> new EscritorCSV(texto);
+				case JSONL -> new EscritorJSONL(texto);
+				case XML -> new EscritorXML(texto, estado);
+			};
+			escritor.inicio();
+			int total = IncidenciasDAO.recorrerIncidencias(con, estado, desde, hasta, incidencia -> {
+				try {
+					escritor.fila(incidencia);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			escritor.fin();
+			// Termina el gzip y vacía los buffers; la salida no se cierra
+			texto.close();
+			return total;
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Método que obtiene el estado a partir de su nombre en plural
+	 * @param nombre pendientes, resueltas o eliminadas
+	 * @return El estado
+	 */
+	static Estado estado(String nombre) {
+		return switch (nombre.toLowerCase(Locale.ROOT)) {
+			case "pendientes" -> Estado.Pendiente;
+			case "resueltas" -> Estado.Resuelta;
+			case "eliminadas" -> Estado.Eliminada;
+			default -> throw new IllegalArgumentException("Estado no válido: " + nombre);
+		};
+	}
+
+	private static String fecha(LocalDate fecha) {
+		return fecha == null ? null : Incidencias.FORMATO_FECHA.format(fecha);
+	}
+
+	private static String[] valores(Incidencias incidencia) {
+		return new String[] { incidencia.getIdentificador(), String.valueOf(incidencia.getEstado()),
+				String.valueOf(incidencia.getPuesto()), incidencia.getDescripcion(), fecha(incidencia.getFechaRegistro()),
+				fecha(incidencia.getFechaResolucion()), incidencia.getResolucion(), fecha(incidencia.getFechaEliminacion()),
+				incidencia.getCausaEliminacion() };
+	}
+
+	/**
+	 * Escritura de las incidencias en un formato
+	 */
+	private interface Escritor {
+		void inicio() throws IOException;
+
+		void fila(Incidencias incidencia) throws IOException;
+
+		void fin() throws IOException;
+	}
+
+	/**
+	 * CSV con cabecera; los campos con separadores, comillas o saltos de línea van entre comillas
+	 */
+	private static final class EscritorCSV implements Escritor {
+		private final Writer salida;
+
+		private EscritorCSV(Writer salida) {
+			this.salida = salida;
+		}
+
+		@Override
+		public void inicio() throws IOException {
+			salida.write(String.join(",", COLUMNAS));
+			salida.write("\r\n");
+		}
+
+		@Override
+		public void fila(Incidencias incidencia) throws IOException {
+			String[] valores = valores(incidencia);
+			for (int i = 0; i < valores.length; i++) {
+				if (i > 0) {
+					salida.write(',');
+				}
+				String valor = valores[i];
+				if (valor == null) {
+					continue;
+				}
+				if (valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0 || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0) {
+					salida.write('"');
+					salida.write(valor.replace("\"", "\"\""));
+					salida.write('"');
+				} else {
+					salida.write(valor);
+				}
+			}
+			salida.write("\r\n");
+		}
+
+		@Override
+		public void fin() {
+		}
+	}
+
+	/**
+	 * Un objeto JSON por línea
+	 */
+	private static final class EscritorJSONL implements Escritor {
+		private final Writer salida;
+
+		private EscritorJSONL(Writer salida) {
+			this.salida = salida;
+		}
+
+		@Override
+		public void inicio() {
+		}
+
+		@Override
+		public void fila(Incidencias incidencia) throws IOException {
+			salida.write(Json.incidencia(incidencia));
+			salida.write('\n');
+		}
+
+		@Override
+		public void fin() {
+		}
+	}
+
+	/**
+	 * Documento XML escrito con StAX, un elemento {@code incidencia} por fila
+	 */
+	private static final class EscritorXML implements Escritor {
+		private final XMLStreamWriter xml;
+		private final Estado estado;
+
+		private EscritorXML(Writer salida, Estado estado) throws IOException {
+			try {
+				this.xml = XMLOutputFactory.newInstance().createXMLStreamWriter(salida);
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			}
+			this.estado = estado;
+		}
+
+		@Override
+		public void inicio() throws IOException {
+			try {
+				xml.writeStartDocument("UTF-8", "1.0");
+				xml.writeStartElement("incidencias");
+				xml.writeAttribute("estado", estado.toString());
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			}
+		}
+
+		@Override
+		public void fila(Incidencias incidencia) throws IOException {
+			try {
+				String[] valores = valores(incidencia);
+				xml.writeStartElement("incidencia");
+				for (int i = 0; i < COLUMNAS.length; i++) {
+					if (valores[i] != null) {
+						xml.writeStartElement(COLUMNAS[i]);
+						xml.writeCharacters(valores[i]);
+						xml.writeEndElement();
+					}
+				}
+				xml.writeEndElement();
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			}
+		}
+
+		@Override
+		public void fin() throws IOException {
+			try {
+				xml.writeEndElement();
+				xml.writeEndDocument();
+				xml.flush();
+			} catch (XMLStreamException e) {
+				throw new IOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Salida que no cierra la salida de debajo, para que quien llama decida cuándo cerrarla
+	 */
+	private static final class NoCerrar extends FilterOutputStream {
+		private NoCerrar(OutputStream salida) {
+			super(salida);
+		}
+
+		@Override
+		public void write(byte[] b, int desde, int longitud) throws IOException {
+			out.write(b, desde, longitud);
+		}
+
+		@Override
+		public void close() throws IOException {
+			flush();
+		}
+	}
+}
@@ -0,0 +1,219 @@
+package servicio;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import dominio.Incidencias;
+
+/**
+ * Lectura y escritura del JSON sencillo que usa el servicio HTTP.
+ * <p>
+ * Solo entiende objetos planos (sin objetos ni listas anidados), que es lo único que llega
+ * en el cuerpo de las peticiones; así no hace falta añadir una biblioteca al proyecto.
+ */
+final class Json {
+
+	private Json() {
+	}
+
+	/**
+	 * Convierte una incidencia en un objeto JSON
+	 * @param incidencia Incidencia a convertir
+	 * @return El objeto JSON
+	 */
+	static String incidencia(Incidencias incidencia) {
+		StringBuilder json = new StringBuilder(256);
+		json.append('{');
+		campo(json, "identificador", incidencia.getIdentificador()).append(',');
+		campo(json, "estado", String.valueOf(incidencia.getEstado())).append(',');
+		json.append("\"puesto\":").append(incidencia.getPuesto()).append(',');
+		campo(json, "descripcion", incidencia.getDescripcion());
+		if (incidencia.getFechaRegistro() != null) {
+			campo(json.append(','), "fechaRegistro", Incidencias.FORMATO_FECHA.format(incidencia.getFechaRegistro()));
+		}
+		if (incidencia.getFechaResolucion() != null) {
+			campo(json.append(','), "fechaResolucion", Incidencias.FORMATO_FECHA.format(incidencia.getFechaResolucion()));
+			campo(json.append(','), "resolucion", incidencia.getResolucion());
+		}
+		if (incidencia.getFechaEliminacion() != null) {
+			campo(json.append(','), "fechaEliminacion", Incidencias.FORMATO_FECHA.format(incidencia.getFechaEliminacion()));
+			campo(json.append(','), "causaEliminacion", incidencia.getCausaEliminacion());
+		}
+		return json.append('}').toString();
+	}
+
+	/**
+	 * Crea un objeto JSON con un único campo de texto
+	 * @param nombre	Nombre del campo
+	 * @param valor		Valor del campo
+	 * @return El objeto JSON
+	 */
+	static String objeto(String nombre, String valor) {
+		return campo(new StringBuilder().append('{'), nombre, valor).append('}').toString();
+	}
+
+	/**
+	 * Crea un objeto JSON con campos numéricos
+	 * @param campos Nombres y valores de los campos, en el orden en que se escriben
+	 * @return El objeto JSON
+	 */
+	static String numeros(Map<String, ? extends Number> campos) {
+		StringBuilder json = new StringBuilder().append('{');
+		for (Map.Entry<String, ? extends Number> campo : campos.entrySet()) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			texto(json, campo.getKey()).append(':').append(campo.getValue());
+		}
+		return json.append('}').toString();
+	}
+
+	private static StringBuilder campo(StringBuilder json, String nombre, String valor) {
+		texto(json, nombre).append(':');
+		return valor == null ? json.append("null") : texto(json, valor);
+	}
+
+	private static StringBuilder texto(StringBuilder json, String valor) {
+		json.append('"');
+		for (int i = 0; i < valor.length(); i++) {
+			char c = valor.charAt(i);
+			switch (c) {
+				case '"' -> json.append("\\\"");
+				case '\\' -> json.append("\\\\");
+				case '\n' -> json.append("\\n");
+				case '\r' -> json.append("\\r");
+				case '\t' -> json.append("\\t");
+				default -> {
+					if (c < 0x20) {
+						json.append(String.format("\\u%04x", (int) c));
+					} else {
+						json.append(c);
+					}
+				}
+			}
+		}
+		return json.append('"');
+	}
+
+	/**
+	 * Lee un objeto JSON plano
+	 * @param json Texto del objeto
+	 * @return Valores de los campos como texto; null para los campos null
+	 * @throws IllegalArgumentException si el texto no es un objeto JSON plano válido
+	 */
+	static Map<String, String> leerObjeto(String json) {
+		Lector lector = new Lector(json);
+		Map<String, String> campos = new LinkedHashMap<>();
+		lector.esperar('{');
+		if (!lector.consumir('}')) {
+			do {
+				String nombre = lector.texto();
+				lector.esperar(':');
+				campos.put(nombre, lector.valor());
+			} while (lector.consumir(','));
+			lector.esperar('}');
+		}
+		lector.fin();
+		return campos;
+	}
+
+	/**
+	 * Analizador del texto de un objeto JSON plano
+	 */
+	private static final class Lector {
+		private final String json;
+		private int posicion;
+
+		private Lector(String json) {
+			this.json = json;
+		}
+
+		private void saltarEspacios() {
+			while (posicion < json.length() && Character.isWhitespace(json.charAt(posicion))) {
+				posicion++;
+			}
+		}
+
+		private boolean consumir(char c) {
+			saltarEspacios();
+			if (posicion < json.length() && json.charAt(posicion) == c) {
+				posicion++;
+				return true;
+			}
+			return false;
+		}
+
+		private void esperar(char c) {
+			if (!consumir(c)) {
+				throw error("se esperaba '" + c + "'");
+			}
+		}
+
+		private void fin() {
+			saltarEspacios();
+			if (posicion != json.length()) {
+				throw error("sobra texto");
+			}
+		}
+
+		private String valor() {
+			saltarEspacios();
+			if (posicion < json.length() && json.charAt(posicion) == '"') {
+				return texto();
+			}
+			int inicio = posicion;
+			while (posicion < json.length() && ",}".indexOf(json.charAt(posicion)) < 0
+					&& !Character.isWhitespace(json.charAt(posicion))) {
+				posicion++;
+			}
+			String literal = json.substring(inicio, posicion);
+			if (literal.equals("null")) {
+				return null;
+			}
+			if (literal.equals("true") || literal.equals("false") || literal.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+				return literal;
+			}
+			throw error("valor no válido");
+		}
+
+		private String texto() {
+			esperar('"');
+			StringBuilder texto = new StringBuilder();
+			while (posicion < json.length()) {
+				char c = json.charAt(posicion++);
+				if (c == '"') {
+					return texto.toString();
+				}
+				if (c != '\\') {
+					texto.append(c);
+					continue;
+				}
+				if (posicion >= json.length()) {
+					break;
+				}
+				char escape = json.charAt(posicion++);
+				switch (escape) {
+					case '"', '\\', '/' -> texto.append(escape);
+					case 'n' -> texto.append('\n');
+					case 'r' -> texto.append('\r');
+					case 't' -> texto.append('\t');
+					case 'b' -> texto.append('\b');
+					case 'f' -> texto.append('\f');
+					case 'u' -> {
+						if (posicion + 4 > json.length()) {
+							throw error("escape incompleto");
+						}
+						texto.append((char) Integer.parseInt(json.substring(posicion, posicion + 4), 16));
+						posicion += 4;
+					}
+					default -> throw error("escape no válido");
+				}
+			}
+			throw error("texto sin terminar");
+		}
+
+		private IllegalArgumentException error(String motivo) {
+			return new IllegalArgumentException("JSON no válido en la posición " + posicion + ": " + motivo);
+		}
+	}
+}
@@ -0,0 +1,395 @@
+package servicio;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import dominio.Estado;
+import dominio.Incidencias;
+import dominio.TiemposResolucion;
+import persistencia.BusquedaDAO;
+import persistencia.ConexionBD;
+import persistencia.EstadisticasDAO;
+import persistencia.IncidenciasDAO;
+import persistencia.RegistroDiferido;
+
+/**
+ * Manejador de las peticiones HTTP sobre incidencias.
+ * <p>
+ * Cada opción del menú de {@link aplicacion.Logica#ejecutarOpcion} tiene su ruta. El
+ * identificador va en el parámetro {@code id} de la consulta porque lleva barras:
+ * <ul>
+ * <li>{@code POST /incidencias} {"puesto", "descripcion"}: registrar (1)</li>
+ * <li>{@code GET /incidencias/pendientes?id=...}: buscar (2)</li>
+ * <li>{@code PUT /incidencias/pendientes?id=...} {"descripcion"}: modificar (3)</li>
+ * <li>{@code POST /incidencias/pendientes/eliminar?id=...} {"fecha", "causa"}: eliminar (4)</li>
+ * <li>{@code POST /incidencias/pendientes/resolver?id=...} {"fecha", "resolucion"}: resolver (5)</li>
+ * <li>{@code PUT /incidencias/resueltas?id=...} {"resolucion"}: modificar una resuelta (6)</li>
+ * <li>{@code POST /incidencias/resueltas/devolver?id=...}: devolver a pendientes (7)</li>
+ * <li>{@code GET /incidencias/pendientes}, {@code /resueltas} y {@code /eliminadas}: listar (8, 9 y 10)</li>
+ * <li>{@code GET /incidencias/exportar?estado=resueltas&formato=csv&desde=...&hasta=...&gzip=true}:
+ * exportar con {@link ExportadorHistorico}</li>
+ * <li>{@code GET /incidencias/buscar?q=...&estado=resueltas&pagina=0&tamano=20}: buscar por palabras
+ * con {@link BusquedaDAO}</li>
+ * <li>{@code GET /incidencias/estadisticas?desde=...&hasta=...}: incidencias de cada estado y
+ * tiempos de resolución de las resueltas entre esas fechas, con {@link EstadisticasDAO}</li>
+ * </ul>
+ * Las fechas van con el formato dd/MM/yyyy y, si no se indican, se toma la de hoy. Cada
+ * petición toma su propia conexión del pool y la devuelve al terminar. Con registro diferido
+ * los registros se guardan en grupo y la respuesta se envía cuando su grupo está guardado.
+ * <p>
+ * Si el servicio está saturado o no hay conexión libre se responde 503, si falla la base de
+ * datos 500 y si la incidencia no existe o no está en el estado de la operación 404. Los
+ * listados y las exportaciones se envían a medida que se leen, así que si algo falla cuando
+ * ya se ha empezado a enviar la respuesta se corta la conexión sin terminar el cuerpo, para
+ * que el cliente no tome como completo un listado a medias.
+ */
+class ManejadorIncidencias implements HttpHandler {
+	private static final String JSON = "application/json; charset=utf-8";
+	/**
+	 * Marca el hilo que atiende una petición que no ha cabido en el grupo de hilos del servicio
+	 */
+	private static final ThreadLocal<Boolean> SATURADO = new ThreadLocal<>();
+
+	private final RegistroDiferido registroDiferido;
+
+	/**
+	 * Constructor del manejador
+	 * @param registroDiferido Registro diferido para las altas, o null para registrarlas una a una
+	 */
+	ManejadorIncidencias(RegistroDiferido registroDiferido) {
+		this.registroDiferido = registroDiferido;
+	}
+
+	/**
+	 * Método que atiende una petición que no ha cabido en el grupo de hilos del servicio: el
+	 * manejador responde 503 sin llegar a la base de datos
+	 * @param peticion Tarea del servidor que lee la petición y llama al manejador
+	 */
+	static void atenderSaturado(Runnable peticion) {
+		SATURADO.set(Boolean.TRUE);
+		try {
+			peticion.run();
+		} finally {
+			SATURADO.remove();
+		}
+	}
+
+	@Override
+	public void handle(HttpExchange intercambio) throws IOException {
+		boolean cerrar = true;
+		try {
+			if (SATURADO.get() != null) {
+				intercambio.getResponseHeaders().set("Retry-After", "1");
+				responder(intercambio, 503, Json.objeto("error", "Servicio saturado, inténtelo más tarde"));
+				return;
+			}
+			String ruta = intercambio.getRequestURI().getPath();
+			if (ruta.length() > 1 && ruta.endsWith("/")) {
+				ruta = ruta.substring(0, ruta.length() - 1);
+			}
+			String metodo = intercambio.getRequestMethod();
+			Map<String, String> consulta = leerConsulta(intercambio.getRequestURI().getRawQuery());
+			String id = consulta.get("id");
+
+			if (registroDiferido != null && metodo.equals("POST") && ruta.equals("/incidencias")) {
+				// Sin conexión propia: el registro diferido toma las suyas para reservar códigos y guardar
+				registrarDiferida(intercambio);
+				return;
+			}
+			Connection conexion;
+			try {
+				conexion = ConexionBD.obtenerConexion();
+			} catch (SQLException e) {
+				// No se ha podido obtener una conexión del pool a tiempo
+				responder(intercambio, 503, Json.objeto("error", e.getMessage()));
+				return;
+			}
+			try (Connection con = conexion) {
+				switch (metodo + " " + ruta) {
+					case "POST /incidencias" -> registrar(intercambio, con);
+					case "GET /incidencias/pendientes" -> {
+						if (id == null) {
+							listar(intercambio, con, Estado.Pendiente);
+						} else {
+							Incidencias incidencia = IncidenciasDAO.buscar(con, id);
+							if (incidencia == null) {
+								responder(intercambio, 404, Json.objeto("error", "No se ha encontrado la incidencia " + id));
+							} else {
+								responder(intercambio, 200, Json.incidencia(incidencia));
+							}
+						}
+					}
+					case "PUT /incidencias/pendientes" -> {
+						Map<String, String> cuerpo = leerCuerpo(intercambio);
+						resultado(intercambio, id, IncidenciasDAO.modificar(con, requerido(id, "id"),
+								requerido(cuerpo.get("descripcion"), "descripcion")));
+					}
+					case "POST /incidencias/pendientes/eliminar" -> {
+						Map<String, String> cuerpo = leerCuerpo(intercambio);
+						resultado(intercambio, id, IncidenciasDAO.eliminar(con, requerido(id, "id"),
+								fecha(cuerpo.get("fecha")), requerido(cuerpo.get("causa"), "causa")));
+					}
+					case "POST /incidencias/pendientes/resolver" -> {
+						Map<String, String> cuerpo = leerCuerpo(intercambio);
+						resultado(intercambio, id, IncidenciasDAO.resolver(con, requerido(id, "id"),
+								fecha(cuerpo.get("fecha")), requerido(cuerpo.get("resolucion"), "resolucion")));
+					}
+					case "PUT /incidencias/resueltas" -> {
+						Map<String, String> cuerpo = leerCuerpo(intercambio);
+						resultado(intercambio, id, IncidenciasDAO.modificarResuelta(con, requerido(id, "id"),
+								requerido(cuerpo.get("resolucion"), "resolucion")));
+					}
+					case "POST /incidencias/resueltas/devolver" ->
+						resultado(intercambio, id, IncidenciasDAO.devolver(con, requerido(id, "id")));
+					case "GET /incidencias/resueltas" -> listar(intercambio, con, Estado.Resuelta);
+					case "GET /incidencias/eliminadas" -> listar(intercambio, con, Estado.Eliminada);
+					case "GET /incidencias/exportar" -> exportar(intercambio, con, consulta);
+					case "GET /incidencias/buscar" -> buscarTexto(intercambio, con, consulta);
+					case "GET /incidencias/estadisticas" -> estadisticas(intercambio, con, consulta);
+					default -> responder(intercambio, 404, Json.objeto("error", "Ruta no encontrada: " + metodo + " " + ruta));
+				}
+			} catch (IllegalArgumentException | DateTimeParseException e) {
+				if (intercambio.getResponseCode() != -1) {
+					throw e;
+				}
+				responder(intercambio, 400, Json.objeto("error", e.getMessage()));
+			} catch (SQLException e) {
+				if (intercambio.getResponseCode() != -1) {
+					throw new IOException("Respuesta interrumpida por un error de la base de datos", e);
+				}
+				responder(intercambio, 500, Json.objeto("error", e.getMessage()));
+			}
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+			if (intercambio.getResponseCode() != -1) {
+				// La respuesta ya ha empezado: no se cierra el intercambio, que terminaría el cuerpo
+				// como si estuviera completo, y al salir la excepción el servidor corta la conexión
+				cerrar = false;
+				throw e;
+			}
+		} finally {
+			if (cerrar) {
+				intercambio.close();
+			}
+		}
+	}
+
+	private static void registrar(HttpExchange intercambio, Connection con) throws IOException, SQLException {
+		Map<String, String> cuerpo = leerCuerpo(intercambio);
+		int puesto = Integer.parseInt(requerido(cuerpo.get("puesto"), "puesto"));
+		String descripcion = requerido(cuerpo.get("descripcion"), "descripcion");
+		String codigo = IncidenciasDAO.registrar(con, Estado.Pendiente, puesto, descripcion);
+		if (codigo == null) {
+			responder(intercambio, 500, Json.objeto("error", "No se ha podido registrar la incidencia"));
+		} else {
+			responder(intercambio, 201, Json.objeto("identificador", codigo));
+		}
+	}
+
+	/**
+	 * Método que registra una incidencia con el registro diferido y responde cuando está guardada
+	 * @param intercambio Petición
+	 * @throws IOException si falla el envío
+	 */
+	private void registrarDiferida(HttpExchange intercambio) throws IOException {
+		try {
+			Map<String, String> cuerpo = leerCuerpo(intercambio);
+			int puesto = Integer.parseInt(requerido(cuerpo.get("puesto"), "puesto"));
+			RegistroDiferido.Registro registro = registroDiferido.registrar(puesto, requerido(cuerpo.get("descripcion"), "descripcion"));
+			registro.getGuardado().join();
+			responder(intercambio, 201, Json.objeto("identificador", registro.getIdentificador()));
+		} catch (IllegalArgumentException e) {
+			responder(intercambio, 400, Json.objeto("error", e.getMessage()));
+		} catch (SQLException | IllegalStateException e) {
+			responder(intercambio, 503, Json.objeto("error", e.getMessage()));
+		} catch (CompletionException e) {
+			responder(intercambio, 500, Json.objeto("error", e.getCause().getMessage()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			responder(intercambio, 503, Json.objeto("error", "Petición interrumpida"));
+		}
+	}
+
+	/**
+	 * Método que envía las incidencias de un estado como una lista JSON a medida que se leen.
+	 * Si falla la consulta no se cierra la lista ni el cuerpo de la respuesta.
+	 * @param intercambio	Petición
+	 * @param con			Conexión a la base de datos
+	 * @param estado		Estado de las incidencias
+	 * @throws IOException si falla el envío
+	 * @throws SQLException si falla la consulta
+	 */
+	private static void listar(HttpExchange intercambio, Connection con, Estado estado) throws IOException, SQLException {
+		intercambio.getResponseHeaders().set("Content-Type", JSON);
+		intercambio.sendResponseHeaders(200, 0);
+		Writer salida = new BufferedWriter(new OutputStreamWriter(intercambio.getResponseBody(), StandardCharsets.UTF_8));
+		salida.write('[');
+		boolean[] primera = { true };
+		IOException[] error = new IOException[1];
+		IncidenciasDAO.recorrer(con, estado, incidencia -> {
+			if (error[0] != null) {
+				return;
+			}
+			try {
+				if (!primera[0]) {
+					salida.write(',');
+				}
+				primera[0] = false;
+				salida.write(Json.incidencia(incidencia));
+			} catch (IOException e) {
+				error[0] = e;
+			}
+		});
+		if (error[0] != null) {
+			throw error[0];
+		}
+		salida.write(']');
+		salida.close();
+	}
+
+	/**
+	 * Método que envía una exportación del histórico a medida que se leen las filas. Si falla
+	 * la consulta no se cierra el cuerpo de la respuesta ni se termina el gzip.
+	 * @param intercambio	Petición
+	 * @param con			Conexión a la base de datos
+	 * @param consulta		Parámetros: estado, formato (csv por defecto), desde, hasta y gzip
+	 * @throws IOException si falla el envío
+	 * @throws SQLException si falla la consulta
+	 */
+	private static void exportar(HttpExchange intercambio, Connection con, Map<String, String> consulta)
+			throws IOException, SQLException {
+		Estado estado = ExportadorHistorico.estado(requerido(consulta.get("estado"), "estado"));
+		ExportadorHistorico.Formato formato = ExportadorHistorico.Formato.valueOf(
+				consulta.getOrDefault("formato", "csv").toUpperCase(Locale.ROOT));
+		boolean gzip = Boolean.parseBoolean(consulta.get("gzip"));
+		LocalDate desde = consulta.containsKey("desde") ? LocalDate.parse(consulta.get("desde"), Incidencias.FORMATO_FECHA_ENTRADA) : null;
+		LocalDate hasta = consulta.containsKey("hasta") ? LocalDate.parse(consulta.get("hasta"), Incidencias.FORMATO_FECHA_ENTRADA) : null;
+		intercambio.getResponseHeaders().set("Content-Type", formato.getTipo() + "; charset=utf-8");
+		if (gzip) {
+			intercambio.getResponseHeaders().set("Content-Encoding", "gzip");
+		}
+		intercambio.sendResponseHeaders(200, 0);
+		OutputStream salida = intercambio.getResponseBody();
+		new ExportadorHistorico(formato, gzip).exportar(con, estado, desde, hasta, salida);
+		salida.close();
+	}
+
+	/**
+	 * Método que envía una página de la búsqueda por palabras como una lista JSON
+	 * @param intercambio	Petición
+	 * @param con			Conexión a la base de datos
+	 * @param consulta		Parámetros: q, estado (todos por defecto), pagina (0) y tamano (20, como mucho 100)
+	 * @throws IOException si falla el envío
+	 * @throws SQLException si falla la búsqueda
+	 */
+	private static void buscarTexto(HttpExchange intercambio, Connection con, Map<String, String> consulta)
+			throws IOException, SQLException {
+		String texto = requerido(consulta.get("q"), "q");
+		Estado estado = consulta.containsKey("estado") ? ExportadorHistorico.estado(consulta.get("estado")) : null;
+		int pagina = Integer.parseInt(consulta.getOrDefault("pagina", "0"));
+		int tamano = Integer.parseInt(consulta.getOrDefault("tamano", "20"));
+		if (pagina < 0 || tamano < 1 || tamano > 100) {
+			throw new IllegalArgumentException("La página debe ser 0 o mayor y el tamaño entre 1 y 100");
+		}
+		StringBuilder json = new StringBuilder("[");
+		for (Incidencias incidencia : BusquedaDAO.buscar(con, texto, estado, pagina, tamano)) {
+			if (json.length() > 1) {
+				json.append(',');
+			}
+			json.append(Json.incidencia(incidencia));
+		}
+		responder(intercambio, 200, json.append(']').toString());
+	}
+
+	/**
+	 * Método que envía las estadísticas del panel como un objeto JSON: las incidencias de cada
+	 * estado y la media, los percentiles 50 y 90 y el máximo de días de resolución
+	 * @param intercambio	Petición
+	 * @param con			Conexión a la base de datos
+	 * @param consulta		Parámetros: desde y hasta, fechas de resolución (sin límite por defecto)
+	 * @throws IOException si falla el envío
+	 * @throws SQLException si falla alguna consulta
+	 */
+	private static void estadisticas(HttpExchange intercambio, Connection con, Map<String, String> consulta)
+			throws IOException, SQLException {
+		LocalDate desde = consulta.containsKey("desde") ? LocalDate.parse(consulta.get("desde"), Incidencias.FORMATO_FECHA_ENTRADA) : null;
+		LocalDate hasta = consulta.containsKey("hasta") ? LocalDate.parse(consulta.get("hasta"), Incidencias.FORMATO_FECHA_ENTRADA) : null;
+		Map<String, Number> campos = new LinkedHashMap<>();
+		Map<Estado, Integer> cuentas = EstadisticasDAO.cuentasPorEstado(con);
+		for (Estado estado : Estado.values()) {
+			campos.put(estado.toString().toLowerCase(Locale.ROOT), cuentas.getOrDefault(estado, 0));
+		}
+		TiemposResolucion tiempos = EstadisticasDAO.tiemposResolucion(con, desde, hasta);
+		campos.put("resueltasIntervalo", tiempos.getTotal());
+		campos.put("mediaDiasResolucion", Math.round(tiempos.getMediaDias() * 100) / 100.0);
+		campos.put("p50DiasResolucion", tiempos.percentil(50));
+		campos.put("p90DiasResolucion", tiempos.percentil(90));
+		campos.put("maximoDiasResolucion", tiempos.getMaximoDias());
+		responder(intercambio, 200, Json.numeros(campos));
+	}
+
+	private static void resultado(HttpExchange intercambio, String id, boolean correcta) throws IOException {
+		if (correcta) {
+			responder(intercambio, 200, Json.objeto("identificador", id));
+		} else {
+			responder(intercambio, 404, Json.objeto("error", "No se ha podido actualizar la incidencia " + id));
+		}
+	}
+
+	private static void responder(HttpExchange intercambio, int estado, String json) throws IOException {
+		byte[] cuerpo = json.getBytes(StandardCharsets.UTF_8);
+		intercambio.getResponseHeaders().set("Content-Type", JSON);
+		intercambio.sendResponseHeaders(estado, cuerpo.length);
+		intercambio.getResponseBody().write(cuerpo);
+	}
+
+	private static Map<String, String> leerCuerpo(HttpExchange intercambio) throws IOException {
+		try (InputStream entrada = intercambio.getRequestBody()) {
+			String texto = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+			return texto.isBlank() ? Map.of() : Json.leerObjeto(texto);
+		}
+	}
+
+	private static Map<String, String> leerConsulta(String consulta) {
+		Map<String, String> parametros = new HashMap<>();
+		if (consulta == null || consulta.isEmpty()) {
+			return parametros;
+		}
+		for (String parte : consulta.split("&")) {
+			int igual = parte.indexOf('=');
+			String nombre = igual < 0 ? parte : parte.substring(0, igual);
+			String valor = igual < 0 ? "" : parte.substring(igual + 1);
+			parametros.put(URLDecoder.decode(nombre, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+		}
+		return parametros;
+	}
+
+	private static String requerido(String valor, String nombre) {
+		if (valor == null || valor.isBlank()) {
+			throw new IllegalArgumentException("Falta el campo " + nombre);
+		}
+		return valor;
+	}
+
+	private static LocalDate fecha(String texto) {
+		return texto == null || texto.isBlank() ? LocalDate.now() : LocalDate.parse(texto, Incidencias.FORMATO_FECHA_ENTRADA);
+	}
+}
@@ -0,0 +1,129 @@
+package servicio;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+
+import concurrencia.Hilos;
+import monitorizacion.MonitorIncidencias;
+import persistencia.ConexionBD;
+import persistencia.Migraciones;
+import persistencia.RegistroDiferido;
+
+/**
+ * Servicio HTTP/JSON con las operaciones de la aplicación, para que un solo proceso atienda
+ * a muchos operadores a la vez.
+ * <p>
+ * Cada petición se atiende en un hilo virtual si la máquina virtual los tiene (Java 21 o
+ * posterior) y, si no, en un grupo acotado de hilos de plataforma (ver {@link Hilos}); en
+ * los dos casos toma su propia conexión del pool de {@link ConexionBD}, que es el que limita
+ * cuántas operaciones llegan a la vez a la base de datos. Propiedades del sistema:
+ * <ul>
+ * <li>{@code incidencias.http.puerto}: puerto en el que escucha (8080)</li>
+ * <li>{@code incidencias.http.hilos}: hilos del grupo cuando no hay hilos virtuales (64)</li>
+ * <li>{@code incidencias.http.cola}: peticiones en espera de un hilo (1000)</li>
+ * <li>{@code incidencias.registro.diferido}: guardar las altas en grupo con {@link RegistroDiferido} (false)</li>
+ * </ul>
+ */
+public class ServicioIncidencias {
+	private final HttpServer servidor;
+	private final ExecutorService ejecutor;
+	/**
+	 * Hilos que responden 503 a las peticiones que no caben en el grupo principal
+	 */
+	private final ExecutorService rechazos;
+	private final RegistroDiferido registroDiferido;
+
+	/**
+	 * Constructor del servicio
+	 * @param puerto Puerto en el que escucha
+	 * @throws IOException si no se puede abrir el puerto
+	 */
+	public ServicioIncidencias(int puerto) throws IOException {
+		this.ejecutor = Hilos.crearEjecutor("http", Integer.getInteger("incidencias.http.hilos", 64),
+				Integer.getInteger("incidencias.http.cola", 1000), false);
+		this.rechazos = Hilos.crearEjecutor("http-rechazo", 2, 256, false);
+		this.registroDiferido = Boolean.getBoolean("incidencias.registro.diferido") ? new RegistroDiferido() : null;
+		this.servidor = HttpServer.create(new InetSocketAddress(puerto), 0);
+		this.servidor.createContext("/incidencias", new ManejadorIncidencias(registroDiferido));
+		this.servidor.setExecutor(this::despachar);
+	}
+
+	/**
+	 * Método que pasa cada petición del hilo del servidor, que acepta y lee todas las
+	 * conexiones, al grupo de hilos. Si el grupo está lleno la petición se atiende como
+	 * rechazada, con un 503 que no toca la base de datos, en los hilos de rechazos o, si
+	 * también están llenos, en el propio hilo del servidor; así ese hilo nunca queda
+	 * ocupado con una operación.
+	 * @param peticion Tarea del servidor que lee la petición y llama al manejador
+	 */
+	private void despachar(Runnable peticion) {
+		try {
+			ejecutor.execute(peticion);
+		} catch (RejectedExecutionException e) {
+			Runnable rechazada = () -> ManejadorIncidencias.atenderSaturado(peticion);
+			try {
+				rechazos.execute(rechazada);
+			} catch (RejectedExecutionException e2) {
+				rechazada.run();
+			}
+		}
+	}
+
+	/**
+	 * Método principal
+	 * @param args No se usan; la configuración se lee de las propiedades del sistema
+	 * @throws IOException si no se puede abrir el puerto
+	 * @throws SQLException si no se puede poner el esquema al día
+	 */
+	public static void main(String[] args) throws IOException, SQLException {
+		MonitorIncidencias.publicar();
+		try (Connection con = ConexionBD.obtenerConexion()) {
+			Migraciones.aplicar(con);
+		}
+		ServicioIncidencias servicio = new ServicioIncidencias(Integer.getInteger("incidencias.http.puerto", 8080));
+		Runtime.getRuntime().addShutdownHook(new Thread(servicio::parar, "parada-servicio"));
+		servicio.iniciar();
+		System.out.println("Servicio de incidencias escuchando en el puerto " + servicio.getPuerto());
+	}
+
+	/**
+	 * Empieza a atender peticiones
+	 */
+	public void iniciar() {
+		servidor.start();
+	}
+
+	/**
+	 * Deja de atender peticiones, espera a las que están en curso, vuelca los registros
+	 * diferidos y cierra el pool de conexiones
+	 */
+	public void parar() {
+		servidor.stop(1);
+		ejecutor.shutdown();
+		rechazos.shutdown();
+		try {
+			ejecutor.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (registroDiferido != null) {
+			registroDiferido.close();
+		}
+		ConexionBD.cerrarPool();
+	}
+
+	/**
+	 * Getter del puerto en el que escucha el servicio
+	 * @return El puerto
+	 */
+	public int getPuerto() {
+		return servidor.getAddress().getPort();
+	}
+}